@@ -0,0 +1,65 @@
+#!/bin/sh
+#
+# Runs the benchmarks against the library built from two commits and prints the scores side by side.
+#
+# Usage: benchmarks/compare.sh <base commit> <head commit> [JMH options]
+# Example: benchmarks/compare.sh HEAD~1 HEAD -f 3 DecoratorBenchmark
+#
+# The benchmarks of the current working tree are used for both commits. Only the benchmarks of the public API are
+# built (profile public-api), so that they compile against any commit of the library, back to the initial one.
+# Each library is installed in the local Maven repository, so install the working tree again afterwards.
+#
+set -e
+
+if [ $# -lt 2 ]; then
+  sed -n 5,6p "$0" | cut -c3-
+  exit 1
+fi
+BASE=$1
+HEAD=$2
+shift 2
+
+ROOT=$(git rev-parse --show-toplevel)
+WORK=$ROOT/benchmarks/target/compare
+rm -rf "$WORK"
+mkdir -p "$WORK"
+
+for COMMIT in "$BASE" "$HEAD"; do
+  SHA=$(git -C "$ROOT" rev-parse --short "$COMMIT")
+  echo "Building $COMMIT ($SHA)"
+  git -C "$ROOT" worktree add --detach "$WORK/src-$SHA" "$COMMIT" > /dev/null
+  (cd "$WORK/src-$SHA" && mvn -B -q install -DskipTests)
+  git -C "$ROOT" worktree remove --force "$WORK/src-$SHA"
+  # no clean, it would delete the work directory. The shaded jar is rebuilt with the library just installed.
+  mvn -B -q -f "$ROOT/benchmarks/pom.xml" -Ppublic-api package > /dev/null
+  cp "$ROOT/benchmarks/target/benchmarks.jar" "$WORK/benchmarks-$SHA.jar"
+done
+
+BASE_SHA=$(git -C "$ROOT" rev-parse --short "$BASE")
+HEAD_SHA=$(git -C "$ROOT" rev-parse --short "$HEAD")
+for SHA in "$BASE_SHA" "$HEAD_SHA"; do
+  echo "Running benchmarks of $SHA"
+  java -jar "$WORK/benchmarks-$SHA.jar" -prof gc -rf csv -rff "$WORK/$SHA.csv" "$@" > "$WORK/$SHA.log"
+done
+
+# columns: Benchmark, Mode, Threads, Samples, Score, Score Error, Unit, then one column per parameter
+awk -F, -v base="$BASE_SHA" -v head="$HEAD_SHA" '
+  FNR == 1 { next }
+  {
+    # JMH writes CRLF line endings
+    sub(/\r$/, "", $NF)
+    for (i = 1; i <= NF; i++) gsub(/"/, "", $i)
+    sub(/^org\.sonar\.commonrules\.benchmarks\./, "", $1)
+    if ($7 != "ops/s" && $7 != "B/op") next
+    key = $1
+    for (i = 8; i <= NF; i++) key = key " " $i
+    if (FILENAME ~ base ".csv$") { baseScore[key] = $5; unit[key] = $7; keys[++n] = key } else { headScore[key] = $5 }
+  }
+  END {
+    printf "%-80s %8s %16s %16s %8s\n", "Benchmark", "Unit", base, head, "Delta"
+    for (i = 1; i <= n; i++) {
+      k = keys[i]
+      delta = baseScore[k] == 0 ? 0 : (headScore[k] - baseScore[k]) * 100 / baseScore[k]
+      printf "%-80s %8s %16.1f %16.1f %+7.1f%%\n", k, unit[k], baseScore[k], headScore[k], delta
+    }
+  }' "$WORK/$BASE_SHA.csv" "$WORK/$HEAD_SHA.csv"
@@ -0,0 +1,104 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.benchmarks;
+
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.commonrules.api.CommonRulesRepository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One constant per rule, with measures that raise a violation and measures that do not.
+ */
+public enum CheckFixture {
+
+  LINE_COVERAGE(CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE) {
+    @Override
+    Map<Metric, Measure> measures(boolean violating) {
+      return violating ? measures(CoreMetrics.LINE_COVERAGE, 40.0, CoreMetrics.LINES_TO_COVER, 100.0, CoreMetrics.UNCOVERED_LINES, 60.0)
+        : measures(CoreMetrics.LINE_COVERAGE, 90.0, CoreMetrics.LINES_TO_COVER, 100.0, CoreMetrics.UNCOVERED_LINES, 10.0);
+    }
+  },
+
+  BRANCH_COVERAGE(CommonRulesRepository.RULE_INSUFFICIENT_BRANCH_COVERAGE) {
+    @Override
+    Map<Metric, Measure> measures(boolean violating) {
+      return violating ? measures(CoreMetrics.BRANCH_COVERAGE, 40.0, CoreMetrics.CONDITIONS_TO_COVER, 50.0, CoreMetrics.UNCOVERED_CONDITIONS, 30.0)
+        : measures(CoreMetrics.BRANCH_COVERAGE, 90.0, CoreMetrics.CONDITIONS_TO_COVER, 50.0, CoreMetrics.UNCOVERED_CONDITIONS, 5.0);
+    }
+  },
+
+  COMMENT_DENSITY(CommonRulesRepository.RULE_INSUFFICIENT_COMMENT_DENSITY) {
+    @Override
+    Map<Metric, Measure> measures(boolean violating) {
+      return violating ? measures(CoreMetrics.COMMENT_LINES_DENSITY, 10.0, CoreMetrics.NCLOC, 90.0, CoreMetrics.COMMENT_LINES, 10.0)
+        : measures(CoreMetrics.COMMENT_LINES_DENSITY, 40.0, CoreMetrics.NCLOC, 60.0, CoreMetrics.COMMENT_LINES, 40.0);
+    }
+  },
+
+  DUPLICATED_BLOCKS(CommonRulesRepository.RULE_DUPLICATED_BLOCKS) {
+    @Override
+    Map<Metric, Measure> measures(boolean violating) {
+      return measures(CoreMetrics.DUPLICATED_BLOCKS, violating ? 2.0 : 0.0);
+    }
+  },
+
+  SKIPPED_UNIT_TESTS(CommonRulesRepository.RULE_SKIPPED_UNIT_TESTS) {
+    @Override
+    Map<Metric, Measure> measures(boolean violating) {
+      return measures(CoreMetrics.SKIPPED_TESTS, violating ? 2.0 : 0.0);
+    }
+  },
+
+  FAILED_UNIT_TESTS(CommonRulesRepository.RULE_FAILED_UNIT_TESTS) {
+    @Override
+    Map<Metric, Measure> measures(boolean violating) {
+      double value = violating ? 1.0 : 0.0;
+      return measures(CoreMetrics.TEST_ERRORS, value, CoreMetrics.TEST_FAILURES, value);
+    }
+  };
+
+  private final String ruleKey;
+
+  CheckFixture(String ruleKey) {
+    this.ruleKey = ruleKey;
+  }
+
+  String ruleKey() {
+    return ruleKey;
+  }
+
+  abstract Map<Metric, Measure> measures(boolean violating);
+
+  /**
+   * @param metricsAndValues pairs of metric and value
+   */
+  static Map<Metric, Measure> measures(Object... metricsAndValues) {
+    Map<Metric, Measure> measures = new HashMap<Metric, Measure>();
+    for (int i = 0; i < metricsAndValues.length; i += 2) {
+      Metric metric = (Metric) metricsAndValues[i];
+      measures.put(metric, new Measure(metric, (Double) metricsAndValues[i + 1]));
+    }
+    return measures;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.Violation;
+import org.sonar.commonrules.internal.CommonRulesConstants;
+import org.sonar.commonrules.internal.checks.BranchCoverageCheck;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.CommentDensityCheck;
+import org.sonar.commonrules.internal.checks.CommonCheck;
+import org.sonar.commonrules.internal.checks.DuplicatedBlocksCheck;
+import org.sonar.commonrules.internal.checks.FailedUnitTestsCheck;
+import org.sonar.commonrules.internal.checks.LineCoverageCheck;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+import org.sonar.commonrules.internal.checks.SkippedUnitTestsCheck;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each check on a single file, with and without violation.
+ * <p/>
+ * Checks are internal classes whose API changes between commits, so this benchmark is left out of the comparisons of
+ * compare.sh.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChecksBenchmark {
+
+  @Param
+  public CheckFixture check;
+
+  @Param({"true", "false"})
+  public boolean violating;
+
+  private CommonCheck commonCheck;
+  private Rule rule;
+  private Resource<?> resource;
+  private MeasureSnapshot measures;
+
+  @Setup
+  public void setUp() {
+    commonCheck = newCheck(check);
+    rule = Rule.create(CommonRulesConstants.REPO_KEY_PREFIX + "java", check.ruleKey(), check.ruleKey());
+    resource = new JavaFile("org.sonar.Foo");
+    FakeDecoratorContext context = new FakeDecoratorContext();
+    context.setMeasures(check.measures(violating));
+    measures = new MeasureSnapshot();
+    measures.load(context.context(), MeasureSnapshot.toArray(EnumSet.allOf(CheckMetric.class)));
+  }
+
+  @Benchmark
+  public double evaluate() {
+    return commonCheck.evaluate(measures);
+  }
+
+  /**
+   * Evaluation and, if needed, creation of the violation with its message.
+   */
+  @Benchmark
+  public Violation evaluateAndCreateViolation() {
+    double cost = commonCheck.evaluate(measures);
+    return CommonCheck.isViolation(cost) ? commonCheck.createViolation(resource, rule, cost) : null;
+  }
+
+  private static CommonCheck newCheck(CheckFixture check) {
+    switch (check) {
+      case LINE_COVERAGE:
+        return new LineCoverageCheck();
+      case BRANCH_COVERAGE:
+        return new BranchCoverageCheck();
+      case COMMENT_DENSITY:
+        return new CommentDensityCheck();
+      case DUPLICATED_BLOCKS:
+        return new DuplicatedBlocksCheck();
+      case SKIPPED_UNIT_TESTS:
+        return new SkippedUnitTestsCheck();
+      case FAILED_UNIT_TESTS:
+        return new FailedUnitTestsCheck();
+      default:
+        throw new IllegalArgumentException("Unknown check: " + check);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.resources.InputFileUtils;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.rules.RuleRepository;
+import org.sonar.commonrules.api.CommonRulesDecorator;
+import org.sonar.commonrules.api.CommonRulesEngine;
+import org.sonar.commonrules.api.CommonRulesRepository;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoration of a module of {@value #FILES} files with the six rules active. One operation is the decoration of one
+ * file, including its share of the decoration of the module.
+ * <p/>
+ * Only the public API of the library is used, so that the benchmark compiles against any commit of the library and
+ * can be run by compare.sh.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecoratorBenchmark {
+
+  static final int FILES = 1000;
+
+  private final FakeDecoratorContext context = new FakeDecoratorContext();
+  private final Resource<?>[] files = new Resource<?>[FILES];
+  private final List<Map<Metric, Measure>> measures = new ArrayList<Map<Metric, Measure>>(FILES);
+  private final Project module = new Project("module");
+  private CommonRulesDecorator decorator;
+
+  @Setup
+  public void setUp() {
+    CommonRulesRepository repository = allRules();
+    // rules get the key of their repository when the server registers it
+    String repositoryKey = ((RuleRepository) repository).getKey();
+    RulesProfile profile = RulesProfile.create("benchmark", "java");
+    for (Rule rule : repository.rules()) {
+      profile.activateRule(Rule.create(repositoryKey, rule.getKey(), rule.getName()), RulePriority.MAJOR);
+    }
+    decorator = new CommonRulesDecorator("java", fileSystem(), profile) {
+    };
+    decorator.shouldExecuteOnProject(module);
+
+    // one file out of four is a unit test file, one out of two violates each rule
+    Random random = new Random(42L);
+    for (int i = 0; i < FILES; i++) {
+      boolean unitTestFile = i % 4 == 0;
+      files[i] = new JavaFile("org.sonar.File" + i, unitTestFile);
+      Map<Metric, Measure> fileMeasures = new HashMap<Metric, Measure>();
+      for (CheckFixture check : CheckFixture.values()) {
+        fileMeasures.putAll(check.measures(random.nextBoolean()));
+      }
+      measures.add(fileMeasures);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(FILES)
+  public long decorateModule() {
+    for (int i = 0; i < FILES; i++) {
+      context.setMeasures(measures.get(i));
+      decorator.decorate(files[i], context.context());
+    }
+    decorator.decorate(module, context.context());
+    return context.savedViolations();
+  }
+
+  private static CommonRulesRepository allRules() {
+    return new CommonRulesEngine("java") {
+      @Override
+      protected void doEnableRules(CommonRulesRepository repository) {
+        repository
+          .enableInsufficientBranchCoverageRule(null)
+          .enableInsufficientLineCoverageRule(null)
+          .enableInsufficientCommentDensityRule(null)
+          .enableDuplicatedBlocksRule()
+          .enableSkippedUnitTestsRule()
+          .enableFailedUnitTestsRule();
+      }
+    }.newRepository();
+  }
+
+  private static ProjectFileSystem fileSystem() {
+    return (ProjectFileSystem) Proxy.newProxyInstance(DecoratorBenchmark.class.getClassLoader(), new Class<?>[] {ProjectFileSystem.class},
+      new InvocationHandler() {
+        public Object invoke(Object proxy, Method method, Object[] args) {
+          if ("mainFiles".equals(method.getName()) || "testFiles".equals(method.getName())) {
+            return Collections.singletonList(InputFileUtils.create(new File("src"), "Foo.java"));
+          }
+          if ("hashCode".equals(method.getName())) {
+            return System.identityHashCode(proxy);
+          }
+          if ("equals".equals(method.getName())) {
+            return proxy == args[0];
+          }
+          throw new UnsupportedOperationException(method.getName());
+        }
+      });
+  }
+}
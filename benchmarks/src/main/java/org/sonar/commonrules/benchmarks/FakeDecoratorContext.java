@@ -0,0 +1,68 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.benchmarks;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Decoration context of the resource being benchmarked: returns the measures set by the benchmark and counts the
+ * saved violations. Only the methods used by the library are supported.
+ */
+final class FakeDecoratorContext implements InvocationHandler {
+
+  private final DecoratorContext proxy;
+  private Map<Metric, Measure> measures = Collections.emptyMap();
+  private long savedViolations = 0L;
+
+  FakeDecoratorContext() {
+    proxy = (DecoratorContext) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DecoratorContext.class}, this);
+  }
+
+  DecoratorContext context() {
+    return proxy;
+  }
+
+  void setMeasures(Map<Metric, Measure> measures) {
+    this.measures = measures;
+  }
+
+  long savedViolations() {
+    return savedViolations;
+  }
+
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    if ("getMeasure".equals(method.getName())) {
+      return measures.get(args[0]);
+    }
+    if ("saveViolation".equals(method.getName())) {
+      savedViolations++;
+      return proxy;
+    }
+    throw new UnsupportedOperationException(method.getName());
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.commonrules.api.CommonRulesEngine;
+import org.sonar.commonrules.api.CommonRulesRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of a repository with the six rules enabled, as done by each language plugin at startup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryBenchmark {
+
+  private final CommonRulesEngine engine = new CommonRulesEngine("java") {
+    @Override
+    protected void doEnableRules(CommonRulesRepository repository) {
+      repository
+        .enableInsufficientBranchCoverageRule(70.0)
+        .enableInsufficientLineCoverageRule(70.0)
+        .enableInsufficientCommentDensityRule(20.0)
+        .enableDuplicatedBlocksRule()
+        .enableSkippedUnitTestsRule()
+        .enableFailedUnitTestsRule();
+    }
+  };
+
+  @Benchmark
+  public CommonRulesRepository newRepository() {
+    return engine.newRepository();
+  }
+}
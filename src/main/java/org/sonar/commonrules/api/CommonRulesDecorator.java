@@ -21,7 +21,7 @@ package org.sonar.commonrules.api;
 
 import org.sonar.api.batch.*;
 import org.sonar.api.checks.AnnotationCheckFactory;
-import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
@@ -30,55 +30,208 @@ import org.sonar.api.resources.Resource;
 import org.sonar.api.resources.ResourceUtils;
 import org.sonar.commonrules.internal.CommonRulesConstants;
 import org.sonar.commonrules.internal.DefaultCommonRulesRepository;
-import org.sonar.commonrules.internal.checks.CommonCheck;
+import org.sonar.commonrules.internal.ModuleFiles;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.FileDetails;
+import org.sonar.commonrules.internal.checks.MeasureFallback;
+import org.sonar.commonrules.internal.engine.CheckStatistics;
+import org.sonar.commonrules.internal.engine.DispatchTable;
+import org.sonar.commonrules.internal.engine.LanguageDecoration;
+import org.sonar.commonrules.internal.engine.ViolationLimits;
+import org.sonar.commonrules.internal.reports.CoverageIndex;
+import org.sonar.commonrules.internal.reports.CoverageReports;
+import org.sonar.commonrules.internal.reports.ReaderPool;
+import org.sonar.commonrules.internal.reports.UnitTestIndex;
+import org.sonar.commonrules.internal.reports.UnitTestReports;
+import org.sonar.commonrules.internal.sources.CommentLineScanner;
+import org.sonar.commonrules.internal.sources.CommentLinesIndex;
+import org.sonar.commonrules.internal.sources.CommentSyntax;
+import org.sonar.commonrules.internal.sources.DuplicatedBlocksIndex;
+import org.sonar.commonrules.internal.sources.DuplicationDetector;
+import org.sonar.commonrules.internal.sources.DuplicationStore;
 
-import java.util.Arrays;
-import java.util.Collection;
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @DependsUpon(DecoratorBarriers.START_VIOLATIONS_GENERATION)
 @DependedUpon(DecoratorBarriers.END_OF_VIOLATIONS_GENERATION)
 public abstract class CommonRulesDecorator implements Decorator {
 
-  private final ProjectFileSystem fs;
   private final String language;
+  private final ProjectFileSystem fs;
   private final RulesProfile qProfile;
-  private AnnotationCheckFactory checkFactory;
-  private Collection<CommonCheck> activeChecks = Collections.emptyList();
+  private final ModuleFiles moduleFiles;
+  private final Settings settings;
+  private DispatchTable dispatchTable = DispatchTable.EMPTY;
+  private LanguageDecoration decoration = new LanguageDecoration(DispatchTable.EMPTY, null, FileDetails.Loader.DISABLED,
+    Collections.<MeasureFallback>emptyList(), null);
 
   public CommonRulesDecorator(String language, ProjectFileSystem fs, RulesProfile qProfile) {
+    this(language, fs, qProfile, new Settings());
+  }
+
+  /**
+   * @param settings used to read the optional {@link CommonRulesProperties}
+   */
+  public CommonRulesDecorator(String language, ProjectFileSystem fs, RulesProfile qProfile, Settings settings) {
     this.language = language;
     this.fs = fs;
     this.qProfile = qProfile;
+    this.moduleFiles = new ModuleFiles(fs);
+    this.settings = settings;
   }
 
   public String language() {
     return language;
   }
 
+  /**
+   * Measures read by the active checks, or by all the supported checks if the decorator is not initialized yet.
+   */
   @DependsUpon
   public List<Metric> dependsUponMetrics() {
-    return Arrays.asList(CoreMetrics.LINE_COVERAGE, CoreMetrics.COMMENT_LINES_DENSITY);
+    Set<CheckMetric> checkMetrics = dispatchTable.isEmpty() ? EnumSet.allOf(CheckMetric.class) : dispatchTable.metrics();
+    List<Metric> metrics = new ArrayList<Metric>(checkMetrics.size());
+    for (CheckMetric checkMetric : checkMetrics) {
+      metrics.add(checkMetric.metric());
+    }
+    metrics.addAll(detailsLoader(UnitTestIndex.EMPTY).metrics());
+    return metrics;
   }
 
   @Override
   public boolean shouldExecuteOnProject(Project project) {
-    boolean hasLangFiles = !fs.mainFiles(language).isEmpty() || !fs.testFiles(language).isEmpty();
-    if (hasLangFiles) {
-      checkFactory = AnnotationCheckFactory.create(qProfile, DefaultCommonRulesRepository.keyForLanguage(language), CommonRulesConstants.CLASSES);
-      activeChecks = checkFactory.getChecks();
+    if (moduleFiles.hasFiles(language, project)) {
+      AnnotationCheckFactory checkFactory = AnnotationCheckFactory.create(qProfile, DefaultCommonRulesRepository.keyForLanguage(language),
+        CommonRulesConstants.CLASSES);
+      CheckStatistics statistics = settings.getBoolean(CommonRulesProperties.STATISTICS) ? new CheckStatistics(language) : null;
+      dispatchTable = DispatchTable.create(checkFactory, statistics);
+      if (!dispatchTable.isEmpty()) {
+        decoration = new LanguageDecoration(dispatchTable, statistics, detailsLoader(readUnitTestReports()), measureFallbacks(),
+          newViolationLimits());
+      }
+    }
+    return !dispatchTable.isEmpty();
+  }
+
+  @CheckForNull
+  private ViolationLimits newViolationLimits() {
+    int[] maxViolations = new int[dispatchTable.size()];
+    for (int i = 0; i < maxViolations.length; i++) {
+      maxViolations[i] = intSetting(String.format(CommonRulesProperties.MAX_VIOLATIONS, dispatchTable.rule(i).getKey()), 0);
+    }
+    return ViolationLimits.create(maxViolations);
+  }
+
+  private FileDetails.Loader detailsLoader(UnitTestIndex unitTests) {
+    return new FileDetails.Loader(settings.getBoolean(CommonRulesProperties.COVERAGE_DETAILS), settings.getInt(CommonRulesProperties.DUPLICATION_DETAILS),
+      unitTests);
+  }
+
+  private UnitTestIndex readUnitTestReports() {
+    String[] paths = settings.getStringArray(CommonRulesProperties.UNIT_TEST_REPORTS);
+    if (paths.length == 0 || !FileDetails.Loader.usesUnitTests(dispatchTable.metrics())) {
+      return UnitTestIndex.EMPTY;
+    }
+    return UnitTestReports.read(resolvePaths(paths), newReaderPool()).withTestFiles(fs.testFiles(language));
+  }
+
+  /**
+   * Measures computed by the common rules for the files whose language plugin does not compute them.
+   */
+  private List<MeasureFallback> measureFallbacks() {
+    List<MeasureFallback> fallbacks = new ArrayList<MeasureFallback>();
+    CoverageIndex coverage = readCoverageReports();
+    if (!coverage.isEmpty()) {
+      fallbacks.add(coverage);
+    }
+    CommentLinesIndex commentLines = scanCommentLines();
+    if (!commentLines.isEmpty()) {
+      fallbacks.add(commentLines);
+    }
+    DuplicatedBlocksIndex duplicatedBlocks = detectDuplications();
+    if (!duplicatedBlocks.isEmpty()) {
+      fallbacks.add(duplicatedBlocks);
+    }
+    return fallbacks;
+  }
+
+  private CoverageIndex readCoverageReports() {
+    String[] paths = settings.getStringArray(CommonRulesProperties.COVERAGE_REPORTS);
+    Set<CheckMetric> metrics = dispatchTable.metrics();
+    if (paths.length == 0 || !metrics.contains(CheckMetric.LINE_COVERAGE) && !metrics.contains(CheckMetric.BRANCH_COVERAGE)) {
+      return CoverageIndex.EMPTY;
+    }
+    return CoverageReports.read(resolvePaths(paths), newReaderPool());
+  }
+
+  private CommentLinesIndex scanCommentLines() {
+    if (!dispatchTable.metrics().contains(CheckMetric.COMMENT_LINES_DENSITY)) {
+      return CommentLinesIndex.EMPTY;
+    }
+    String[] lineComments = settings.getStringArray(String.format(CommonRulesProperties.LINE_COMMENTS, language));
+    String[] blockComments = settings.getStringArray(String.format(CommonRulesProperties.BLOCK_COMMENTS, language));
+    String stringDelimiters = String.format(CommonRulesProperties.STRING_DELIMITERS, language);
+    CommentSyntax syntax = settings.hasKey(stringDelimiters)
+      ? CommentSyntax.create(lineComments, blockComments, settings.getStringArray(stringDelimiters))
+      : CommentSyntax.create(lineComments, blockComments);
+    if (syntax.isEmpty()) {
+      return CommentLinesIndex.EMPTY;
+    }
+    return CommentLineScanner.scan(fs.mainFiles(language), syntax, fs.getSourceCharset(), newReaderPool());
+  }
+
+  private DuplicatedBlocksIndex detectDuplications() {
+    int minimumLines = intSetting(CommonRulesProperties.MINIMUM_DUPLICATED_LINES, 0);
+    if (minimumLines <= 0 || !dispatchTable.metrics().contains(CheckMetric.DUPLICATED_BLOCKS)) {
+      return DuplicatedBlocksIndex.EMPTY;
+    }
+    File workingDir = incrementalWorkingDir();
+    if (workingDir == null) {
+      return DuplicationDetector.detect(fs.mainFiles(language), minimumLines, fs.getSourceCharset(), newReaderPool());
     }
-    return !activeChecks.isEmpty();
+    DuplicationStore store = DuplicationStore.load(new File(workingDir, "common-rules-" + language + ".duplications"), minimumLines);
+    return store.update(fs.mainFiles(language), fs.getSourceCharset(), newReaderPool());
   }
 
-  @SuppressWarnings({"rawtypes", "unchecked"})
+  /**
+   * @return null if nothing is kept between analyses
+   */
+  @CheckForNull
+  private File incrementalWorkingDir() {
+    boolean enabled = !settings.hasKey(CommonRulesProperties.INCREMENTAL) || settings.getBoolean(CommonRulesProperties.INCREMENTAL);
+    return enabled ? fs.getSonarWorkingDirectory() : null;
+  }
+
+  private List<File> resolvePaths(String[] paths) {
+    List<File> files = new ArrayList<File>(paths.length);
+    for (String path : paths) {
+      files.add(fs.resolvePath(path));
+    }
+    return files;
+  }
+
+  private ReaderPool newReaderPool() {
+    return new ReaderPool(intSetting(CommonRulesProperties.PARALLELISM, Runtime.getRuntime().availableProcessors()));
+  }
+
+  private int intSetting(String key, int defaultValue) {
+    return settings.hasKey(key) ? settings.getInt(key) : defaultValue;
+  }
+
+  @SuppressWarnings("rawtypes")
   public void decorate(Resource resource, DecoratorContext context) {
-    // assume that all checks relate to files, not directories nor modules
     if (ResourceUtils.isEntity(resource) && resource.getLanguage() != null && resource.getLanguage().getKey().equals(language)) {
-      for (CommonCheck check : activeChecks) {
-        check.checkResource(resource, context, checkFactory.getActiveRule(check).getRule());
-      }
+      // assume that all checks relate to files, not directories nor modules
+      decoration.decorateFile(resource, context);
+    } else if (ResourceUtils.isProject(resource)) {
+      // the module is decorated after all its files
+      decoration.decorateModule(context);
     }
   }
 
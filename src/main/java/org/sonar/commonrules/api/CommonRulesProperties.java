@@ -0,0 +1,127 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.api;
+
+/**
+ * Keys of the batch properties read by {@link CommonRulesDecorator}. They are optional and can be declared by the
+ * language plugins that embed the common rules.
+ */
+public interface CommonRulesProperties {
+
+  /**
+   * Number of threads reading the reports and the source files used by the checks, see {@link #UNIT_TEST_REPORTS},
+   * {@link #COVERAGE_REPORTS}, {@link #LINE_COMMENTS} and {@link #MINIMUM_DUPLICATED_LINES}. Checks are always
+   * evaluated by the batch thread. Default value is the number of processors.
+   */
+  String PARALLELISM = "sonar.commonRules.parallelism";
+
+  /**
+   * Whether the window hashes of the duplications detected by the common rules, see {@link #MINIMUM_DUPLICATED_LINES},
+   * are kept in the working directory, so that only the files modified since the previous analysis are read again.
+   * Default value is true.
+   */
+  String INCREMENTAL = "sonar.commonRules.incremental";
+
+  /**
+   * Whether the evaluations of each check are counted and timed. Statistics are logged at the end of each module and,
+   * during the decoration of the module, published in JMX as
+   * {@code org.sonar.commonrules:type=CheckStatistics,language=<key>}. Default value is false.
+   */
+  String STATISTICS = "sonar.commonRules.statistics";
+
+  /**
+   * Whether the violations of the line and branch coverage checks are set on the first line to cover and list the lines
+   * and the conditions to cover in their message. Coverage data by line is read only for the files that violate a
+   * check. Default value is false.
+   */
+  String COVERAGE_DETAILS = "sonar.commonRules.coverageDetails";
+
+  /**
+   * Maximum number of duplicated blocks listed, with the other files involved, in the message of the violations of the
+   * duplicated blocks check. Violations are set on the first block. Duplications data is read only for the files that
+   * violate a check, and only up to this number of blocks. Default value is 0, which does not list the blocks.
+   */
+  String DUPLICATION_DETAILS = "sonar.commonRules.duplicationDetails";
+
+  /**
+   * Comma-separated directories, relative to the base directory of the module, containing JUnit XML reports named
+   * <code>TEST-*.xml</code>, like the reports of Surefire. If set, the violations of the failed and skipped unit tests
+   * checks list the names of the failed and skipped tests. Reports are read in parallel, see {@link #PARALLELISM}.
+   * Not set by default.
+   */
+  String UNIT_TEST_REPORTS = "sonar.commonRules.unitTestReports";
+
+  /**
+   * Comma-separated paths, relative to the base directory of the module, of JaCoCo or Cobertura XML reports. The line
+   * and branch coverage checks use the coverage of these reports on the files that have no coverage measures, for
+   * example because the plugin of their language does not import coverage. Reports are streamed, so their size does
+   * not matter, and read in parallel, see {@link #PARALLELISM}. They are only read if one of these checks is active.
+   * Not set by default.
+   */
+  String COVERAGE_REPORTS = "sonar.commonRules.coverageReports";
+
+  /**
+   * Format of the key of the comma-separated starts of line comments of a language, like <code>//,#</code>, where
+   * <code>%s</code> is the key of the language. If this property or {@link #BLOCK_COMMENTS} is set, the comment density
+   * check counts the lines of code and the comment lines of the files that have no comment density measure, for example
+   * because the plugin of their language does not compute it. Sources are only scanned if this check is active, in
+   * parallel, see {@link #PARALLELISM}, and as bytes, so their encoding must be compatible with ASCII, like UTF-8 or
+   * ISO-8859-1. Not set by default.
+   */
+  String LINE_COMMENTS = "sonar.commonRules.%s.lineComments";
+
+  /**
+   * Format of the key of the comma-separated block comments of a language, where <code>%s</code> is the key of the
+   * language. Each block comment is defined by its start and its end separated by a space, like <code>/* *&#47;</code>.
+   * See {@link #LINE_COMMENTS}. Not set by default.
+   */
+  String BLOCK_COMMENTS = "sonar.commonRules.%s.blockComments";
+
+  /**
+   * Format of the key of the comma-separated characters delimiting the strings of a language, like <code>",'</code>,
+   * where <code>%s</code> is the key of the language. Comment delimiters in strings do not start comments. Unless it
+   * delimits strings, a single quote only delimits character literals, like <code>'a'</code>. See
+   * {@link #LINE_COMMENTS}. Default value is <code>"</code>.
+   */
+  String STRING_DELIMITERS = "sonar.commonRules.%s.stringDelimiters";
+
+  /**
+   * Minimum number of lines of the duplicated blocks detected by the common rules. If greater than 0, the duplicated
+   * blocks check detects the duplications of the main files that have no duplicated blocks measure, for example
+   * because the plugin of their language does not detect them. Only the lines containing a letter or a digit are
+   * counted, and blanks are ignored. Sources are only hashed if this check is active, in parallel, see
+   * {@link #PARALLELISM}, and as bytes, so their encoding must be compatible with ASCII. Unless {@link #INCREMENTAL} is
+   * false, only the files modified since the previous analysis are hashed. Default value is 0, which disables the
+   * detection.
+   */
+  String MINIMUM_DUPLICATED_LINES = "sonar.commonRules.minimumDuplicatedLines";
+
+  /**
+   * Format of the key of the maximum number of violations raised by a rule on the files of a module, where
+   * <code>%s</code> is the key of the rule, like <code>InsufficientLineCoverage</code>. If greater than 0, only the
+   * first violations, in the order the files are decorated, are saved on their files, and the other ones are replaced by
+   * a single violation on the module whose cost is their total cost. The saved violations are not the ones with the
+   * highest costs. When files are added to or removed from the module, the files keeping a violation can change, and
+   * violations are then closed and opened again by the violation tracking of Sonar. Default value is 0, which saves all
+   * the violations.
+   */
+  String MAX_VIOLATIONS = "sonar.commonRules.%s.maxViolations";
+
+}
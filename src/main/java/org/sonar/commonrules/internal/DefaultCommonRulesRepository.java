@@ -19,7 +19,6 @@
  */
 package org.sonar.commonrules.internal;
 
-import org.sonar.api.rules.AnnotationRuleParser;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleParam;
 import org.sonar.api.rules.RuleRepository;
@@ -30,18 +29,11 @@ import java.util.*;
 
 public class DefaultCommonRulesRepository extends RuleRepository implements CommonRulesRepository {
 
-  private final Map<String, Rule> supportedRulesByKey;
   private final List<Rule> rules = new ArrayList<Rule>();
 
   public DefaultCommonRulesRepository(String language) {
     super(keyForLanguage(language), language);
     setName("Common SonarQube");
-
-    supportedRulesByKey = new HashMap<String, Rule>();
-    List<Rule> supportedRules = new AnnotationRuleParser().parse(keyForLanguage(CommonRulesConstants.REPO_KEY_PREFIX), CommonRulesConstants.CLASSES);
-    for (Rule supportedRule : supportedRules) {
-      supportedRulesByKey.put(supportedRule.getKey(), supportedRule);
-    }
   }
 
   public static String keyForLanguage(String language) {
@@ -93,7 +85,7 @@ public class DefaultCommonRulesRepository extends RuleRepository implements Comm
   }
 
   DefaultCommonRulesRepository enableRule(String ruleKey, Map<String, String> params) {
-    Rule rule = supportedRulesByKey.get(ruleKey);
+    Rule rule = RuleTemplates.newRule(ruleKey);
     if (rule == null) {
       throw new IllegalStateException("Unknown rule: " + ruleKey);
     }
@@ -0,0 +1,177 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal;
+
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.api.utils.WildcardPattern;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tells whether a module has source or test files of a language, without building the lists returned by
+ * {@link ProjectFileSystem#mainFiles(String...)} and {@link ProjectFileSystem#testFiles(String...)}.
+ * <p/>
+ * Source and test directories are walked lazily and the walk stops at the first file having one of the suffixes of
+ * the language. Results are cached per language. An instance is owned by the decorator of a module, so nothing is
+ * kept once the module is analyzed.
+ * <p/>
+ * Files are selected as by the default file system: hidden files and directories are ignored, as well as the source
+ * files matching the exclusion patterns of the project. File filters of plugins are not applied, so a module having
+ * only excluded files may be considered as having files, which only costs the execution of an idle decorator.
+ */
+public final class ModuleFiles {
+
+  private final ProjectFileSystem fs;
+  private final Map<String, Boolean> hasFilesByLanguage = new HashMap<String, Boolean>();
+
+  public ModuleFiles(ProjectFileSystem fs) {
+    this.fs = fs;
+  }
+
+  /**
+   * @param project the module, used to get the file suffixes of its language and its exclusion patterns. If it's null
+   * or if it's not a module of this language, then the lists of files are built by the file system.
+   */
+  public boolean hasFiles(String language, @Nullable Project project) {
+    Boolean hasFiles = hasFilesByLanguage.get(language);
+    if (hasFiles == null) {
+      String[] suffixes = suffixes(language, project);
+      if (suffixes == null) {
+        hasFiles = !fs.mainFiles(language).isEmpty() || !fs.testFiles(language).isEmpty();
+      } else {
+        hasFiles = new Walk(suffixes, exclusionPatterns(project)).find(fs);
+      }
+      hasFilesByLanguage.put(language, hasFiles);
+    }
+    return hasFiles;
+  }
+
+  @CheckForNull
+  private static String[] suffixes(String language, @Nullable Project project) {
+    if (project == null || project.getLanguage() == null || !language.equals(project.getLanguage().getKey())) {
+      return null;
+    }
+    return project.getLanguage().getFileSuffixes();
+  }
+
+  private static WildcardPattern[] exclusionPatterns(Project project) {
+    String[] patterns = project.getExclusionPatterns();
+    return WildcardPattern.create(patterns == null ? new String[0] : patterns);
+  }
+
+  private static final class Walk {
+    private final Deque<Directory> directories = new ArrayDeque<Directory>();
+    private final String[] suffixes;
+    private final WildcardPattern[] exclusions;
+
+    /**
+     * @param suffixes all the files are accepted if empty
+     */
+    Walk(String[] suffixes, WildcardPattern[] exclusions) {
+      this.suffixes = new String[suffixes.length];
+      for (int i = 0; i < suffixes.length; i++) {
+        this.suffixes[i] = suffixes[i].startsWith(".") ? suffixes[i] : ("." + suffixes[i]);
+      }
+      this.exclusions = exclusions;
+    }
+
+    boolean find(ProjectFileSystem fs) {
+      for (File dir : fs.getSourceDirs()) {
+        directories.add(new Directory(dir, "", true));
+      }
+      for (File dir : fs.getTestDirs()) {
+        directories.add(new Directory(dir, "", false));
+      }
+      while (!directories.isEmpty()) {
+        if (visit(directories.pop())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return true if the directory directly contains a file of the language
+     */
+    private boolean visit(Directory directory) {
+      File[] children = directory.dir.listFiles();
+      if (children == null) {
+        return false;
+      }
+      for (File child : children) {
+        String name = child.getName();
+        if (child.isHidden() || name.startsWith(".")) {
+          continue;
+        }
+        String relativePath = directory.relativePath + name;
+        if (child.isDirectory()) {
+          directories.push(new Directory(child, relativePath + "/", directory.source));
+        } else if (hasSuffix(name) && (!directory.source || !isExcluded(relativePath))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean hasSuffix(String name) {
+      if (suffixes.length == 0) {
+        return true;
+      }
+      for (String suffix : suffixes) {
+        if (name.endsWith(suffix)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isExcluded(String relativePath) {
+      for (WildcardPattern exclusion : exclusions) {
+        if (exclusion.match(relativePath)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class Directory {
+    private final File dir;
+    private final String relativePath;
+    private final boolean source;
+
+    /**
+     * @param relativePath path of the directory relative to its source or test directory, with a trailing slash
+     * unless empty
+     */
+    Directory(File dir, String relativePath, boolean source) {
+      this.dir = dir;
+      this.relativePath = relativePath;
+      this.source = source;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal;
+
+import org.sonar.api.rules.AnnotationRuleParser;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RuleParam;
+
+import javax.annotation.CheckForNull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rules declared by the annotations of {@link CommonRulesConstants#CLASSES}. They are parsed once per classloader,
+ * whatever the number of language plugins creating a repository. Templates are never exposed: each repository
+ * gets its own copies, that it is free to modify.
+ */
+final class RuleTemplates {
+
+  private static final Map<String, Rule> TEMPLATES_BY_KEY = parse();
+
+  private RuleTemplates() {
+    // only static methods
+  }
+
+  private static Map<String, Rule> parse() {
+    List<Rule> rules = new AnnotationRuleParser().parse(DefaultCommonRulesRepository.keyForLanguage(CommonRulesConstants.REPO_KEY_PREFIX),
+      CommonRulesConstants.CLASSES);
+    Map<String, Rule> rulesByKey = new LinkedHashMap<String, Rule>();
+    for (Rule rule : rules) {
+      rulesByKey.put(rule.getKey(), rule);
+    }
+    return Collections.unmodifiableMap(rulesByKey);
+  }
+
+  /**
+   * @return a new copy of the rule, or null if the rule does not exist
+   */
+  @CheckForNull
+  static Rule newRule(String ruleKey) {
+    Rule template = TEMPLATES_BY_KEY.get(ruleKey);
+    return template == null ? null : copy(template);
+  }
+
+  static int size() {
+    return TEMPLATES_BY_KEY.size();
+  }
+
+  private static Rule copy(Rule template) {
+    Rule rule = Rule.create(template.getRepositoryKey(), template.getKey(), template.getName())
+      .setConfigKey(template.getConfigKey())
+      .setDescription(template.getDescription())
+      .setSeverity(template.getSeverity())
+      .setCardinality(template.getCardinality());
+    for (RuleParam templateParam : template.getParams()) {
+      rule.createParameter(templateParam.getKey())
+        .setDescription(templateParam.getDescription())
+        .setType(templateParam.getType())
+        .setDefaultValue(templateParam.getDefaultValue());
+    }
+    return rule;
+  }
+}
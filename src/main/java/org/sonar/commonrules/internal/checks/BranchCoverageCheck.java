@@ -19,9 +19,6 @@
  */
 package org.sonar.commonrules.internal.checks;
 
-import org.sonar.api.batch.DecoratorContext;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Violation;
 import org.sonar.check.Priority;
@@ -29,6 +26,11 @@ import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 import org.sonar.commonrules.api.CommonRulesRepository;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 @Rule(
   key = CommonRulesRepository.RULE_INSUFFICIENT_BRANCH_COVERAGE,
   name = "Insufficient branch coverage by unit tests",
@@ -38,35 +40,57 @@ import org.sonar.commonrules.api.CommonRulesRepository;
 public class BranchCoverageCheck extends CommonCheck {
 
   private static final double DEFAULT_RATIO = 65;
+  private static final Set<CheckMetric> METRICS = Collections.unmodifiableSet(EnumSet.of(CheckMetric.BRANCH_COVERAGE, CheckMetric.UNCOVERED_CONDITIONS, CheckMetric.CONDITIONS_TO_COVER));
+  private static final MessageTemplate MESSAGE = MessageTemplate.parse(
+    "{count} more branches need to be covered by unit tests to reach the minimum threshold of {threshold}% branch coverage.");
 
   @RuleProperty(key = CommonRulesRepository.PARAM_MIN_BRANCH_COVERAGE, description = "The minimum required branch coverage ratio.", defaultValue = "" + DEFAULT_RATIO)
   private double minimumBranchCoverageRatio = DEFAULT_RATIO;
 
-  @SuppressWarnings("rawtypes")
+  public BranchCoverageCheck() {
+    // parameters are injected by AnnotationCheckFactory
+  }
+
+  public BranchCoverageCheck(double minimumBranchCoverageRatio) {
+    this.minimumBranchCoverageRatio = minimumBranchCoverageRatio;
+    activate();
+  }
+
+  @Override
+  public Set<CheckMetric> metrics() {
+    return METRICS;
+  }
+
   @Override
-  public void checkResource(Resource resource, DecoratorContext context, org.sonar.api.rules.Rule rule) {
-    double lineCoverage = MeasureUtils.getValue(context.getMeasure(CoreMetrics.BRANCH_COVERAGE), 0.0);
-    if (context.getMeasure(CoreMetrics.BRANCH_COVERAGE) != null && lineCoverage < minimumBranchCoverageRatio) {
-      double uncoveredConditions = MeasureUtils.getValue(context.getMeasure(CoreMetrics.UNCOVERED_CONDITIONS), 0.0);
-      double conditionsToCover = MeasureUtils.getValue(context.getMeasure(CoreMetrics.CONDITIONS_TO_COVER), 0.0);
-      double conditionsToCoverToReachThreshold = Math.ceil((conditionsToCover * minimumBranchCoverageRatio / 100)
-        - (conditionsToCover - uncoveredConditions));
+  public Applicability applicability() {
+    return Applicability.MAIN_FILES;
+  }
 
-      Violation violation = createViolation(resource, rule, conditionsToCoverToReachThreshold);
-      context.saveViolation(violation);
+  @Override
+  public double evaluate(MeasureSnapshot measures) {
+    double branchCoverage = measures.get(CheckMetric.BRANCH_COVERAGE);
+    if (measures.has(CheckMetric.BRANCH_COVERAGE) && branchCoverage < minimumBranchCoverageRatio) {
+      double uncoveredConditions = measures.get(CheckMetric.UNCOVERED_CONDITIONS);
+      double conditionsToCover = measures.get(CheckMetric.CONDITIONS_TO_COVER);
+      return Math.ceil((conditionsToCover * minimumBranchCoverageRatio / 100) - (conditionsToCover - uncoveredConditions));
     }
+    return NO_VIOLATION;
   }
 
-  @SuppressWarnings("rawtypes")
-  private Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double conditionsToCoverToReachThreshold) {
-    Violation violation = Violation.create(rule, resource).setCost(conditionsToCoverToReachThreshold);
-    violation.setMessage((int) conditionsToCoverToReachThreshold
-      + " more branches need to be covered by unit tests to reach the minimum threshold of " + minimumBranchCoverageRatio
-      + "% branch coverage.");
-    return violation;
+  @Override
+  public MessageTemplate messageTemplate() {
+    return MESSAGE;
   }
 
-  public void setMinimumBranchCoverageRatio(int threshold) {
-    this.minimumBranchCoverageRatio = threshold;
+  @Override
+  public double threshold() {
+    return minimumBranchCoverageRatio;
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double cost, @Nullable FileDetails details) {
+    CoverageDetails coverage = details == null ? null : details.coverage();
+    return newViolation(resource, rule, cost, coverage == null ? null : coverage.uncoveredConditions());
   }
 }
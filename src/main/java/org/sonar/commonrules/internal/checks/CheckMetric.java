@@ -0,0 +1,60 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+
+/**
+ * Measures that can be read by the common checks. The ordinal of each constant is used as an index in
+ * {@link MeasureSnapshot}, so that a snapshot can be backed by a primitive array and a bit mask.
+ */
+public enum CheckMetric {
+
+  LINE_COVERAGE(CoreMetrics.LINE_COVERAGE),
+  UNCOVERED_LINES(CoreMetrics.UNCOVERED_LINES),
+  LINES_TO_COVER(CoreMetrics.LINES_TO_COVER),
+  BRANCH_COVERAGE(CoreMetrics.BRANCH_COVERAGE),
+  UNCOVERED_CONDITIONS(CoreMetrics.UNCOVERED_CONDITIONS),
+  CONDITIONS_TO_COVER(CoreMetrics.CONDITIONS_TO_COVER),
+  COMMENT_LINES_DENSITY(CoreMetrics.COMMENT_LINES_DENSITY),
+  COMMENT_LINES(CoreMetrics.COMMENT_LINES),
+  NCLOC(CoreMetrics.NCLOC),
+  DUPLICATED_BLOCKS(CoreMetrics.DUPLICATED_BLOCKS),
+  SKIPPED_TESTS(CoreMetrics.SKIPPED_TESTS),
+  TEST_ERRORS(CoreMetrics.TEST_ERRORS),
+  TEST_FAILURES(CoreMetrics.TEST_FAILURES);
+
+  private final Metric metric;
+  private final long mask;
+
+  CheckMetric(Metric metric) {
+    this.metric = metric;
+    this.mask = 1L << ordinal();
+  }
+
+  public Metric metric() {
+    return metric;
+  }
+
+  long mask() {
+    return mask;
+  }
+}
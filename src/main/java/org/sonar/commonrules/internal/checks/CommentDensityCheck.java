@@ -19,15 +19,14 @@
  */
 package org.sonar.commonrules.internal.checks;
 
-import org.sonar.api.batch.DecoratorContext;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.MeasureUtils;
-import org.sonar.api.resources.Resource;
-import org.sonar.api.rules.Violation;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 @Rule(
   key = "InsufficientCommentDensity",
   name = "Insufficient comment density",
@@ -37,37 +36,58 @@ import org.sonar.check.RuleProperty;
 public class CommentDensityCheck extends CommonCheck {
 
   private static final double DEFAULT_MIN_DENSITY = 25;
+  private static final Set<CheckMetric> METRICS = Collections.unmodifiableSet(EnumSet.of(CheckMetric.COMMENT_LINES_DENSITY, CheckMetric.NCLOC, CheckMetric.COMMENT_LINES));
+  private static final MessageTemplate MESSAGE = MessageTemplate.parse(
+    "{count} more comment lines need to be written to reach the minimum threshold of {threshold}% comment density.");
 
   @RuleProperty(key ="minimumCommentDensity", description = "The minimum required comment density.", defaultValue = "" + DEFAULT_MIN_DENSITY)
   private double minimumCommentDensity = DEFAULT_MIN_DENSITY;
 
-  @SuppressWarnings("rawtypes")
+  public CommentDensityCheck() {
+    // parameters are injected by AnnotationCheckFactory
+  }
+
+  public CommentDensityCheck(double minimumCommentDensity) {
+    this.minimumCommentDensity = minimumCommentDensity;
+    activate();
+  }
+
   @Override
-  public void checkResource(Resource resource, DecoratorContext context, org.sonar.api.rules.Rule rule) {
+  public void activate() {
     if (minimumCommentDensity < 0 || minimumCommentDensity >= 100) {
       throw new IllegalArgumentException(minimumCommentDensity
         + " is not a valid value for minimum required comment density for rule 'CommentDensityCheck' (must be >= 0 and < 100).");
     }
+  }
 
-    double commentDensity = MeasureUtils.getValue(context.getMeasure(CoreMetrics.COMMENT_LINES_DENSITY), 0.0);
-    double linesOfCode = MeasureUtils.getValue(context.getMeasure(CoreMetrics.NCLOC), 0.0);
-    if (commentDensity < minimumCommentDensity && Double.doubleToRawLongBits(linesOfCode) != 0L) {
-      double commentLines = MeasureUtils.getValue(context.getMeasure(CoreMetrics.COMMENT_LINES), 0.0);
-      double missingCommentLines = Math.ceil(minimumCommentDensity * linesOfCode / (100 - minimumCommentDensity) - commentLines);
+  @Override
+  public Set<CheckMetric> metrics() {
+    return METRICS;
+  }
+
+  @Override
+  public Applicability applicability() {
+    return Applicability.MAIN_FILES;
+  }
 
-      Violation violation = createViolation(resource, rule, missingCommentLines);
-      context.saveViolation(violation);
+  @Override
+  public double evaluate(MeasureSnapshot measures) {
+    double commentDensity = measures.get(CheckMetric.COMMENT_LINES_DENSITY);
+    double linesOfCode = measures.get(CheckMetric.NCLOC);
+    if (commentDensity < minimumCommentDensity && Double.doubleToRawLongBits(linesOfCode) != 0L) {
+      double commentLines = measures.get(CheckMetric.COMMENT_LINES);
+      return Math.ceil(minimumCommentDensity * linesOfCode / (100 - minimumCommentDensity) - commentLines);
     }
+    return NO_VIOLATION;
   }
 
-  private Violation createViolation(Resource<?> resource, org.sonar.api.rules.Rule rule, double missingCommentLines) {
-    Violation violation = Violation.create(rule, resource).setCost(missingCommentLines);
-    violation.setMessage((int) missingCommentLines + " more comment lines need to be written to reach the minimum threshold of "
-      + minimumCommentDensity + "% comment density.");
-    return violation;
+  @Override
+  public MessageTemplate messageTemplate() {
+    return MESSAGE;
   }
 
-  public void setMinimumCommentDensity(int threshold) {
-    this.minimumCommentDensity = threshold;
+  @Override
+  public double threshold() {
+    return minimumCommentDensity;
   }
 }
@@ -23,12 +23,132 @@ import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.Violation;
 
+import javax.annotation.Nullable;
+import java.util.Set;
+
+/**
+ * Checks are instantiated by {@link org.sonar.api.checks.AnnotationCheckFactory}, which injects their parameters, then
+ * {@link #activate() activated} once. They are not modified afterwards, so {@link #evaluate(MeasureSnapshot)} does
+ * not validate anything.
+ */
 public abstract class CommonCheck {
 
+  public static final double NO_VIOLATION = Double.NaN;
+
+  /**
+   * Validates the parameters of the check. Called once, after the parameters are injected and before the first
+   * evaluation, so that an invalid quality profile fails before the decoration of the module.
+   *
+   * @throws IllegalArgumentException if a parameter is not valid
+   */
+  public void activate() {
+    // no parameters by default
+  }
+
+  /**
+   * Measures read by this check. The decorator prefetches the union of the measures of all the active checks, declares
+   * them as dependencies, and does not execute the check on a resource when none of these measures is available.
+   */
+  public abstract Set<CheckMetric> metrics();
+
+  /**
+   * Kind of files this check applies to. The decorator does not execute the check on other files.
+   */
+  public Applicability applicability() {
+    return Applicability.ALL_FILES;
+  }
+
+  /**
+   * @return the cost of the violation raised on a resource having these measures, or {@link #NO_VIOLATION}
+   */
+  public abstract double evaluate(MeasureSnapshot measures);
+
+  /**
+   * Template of the message of the violations raised by this check, rendered with their cost and {@link #threshold()}.
+   */
+  public abstract MessageTemplate messageTemplate();
+
+  /**
+   * Threshold substituted in the message of the violations, if the template of this check has one.
+   */
+  public double threshold() {
+    return Double.NaN;
+  }
+
+  /**
+   * @param cost as returned by {@link #evaluate(MeasureSnapshot)}
+   */
+  public String message(double cost) {
+    return messageTemplate().render(cost, threshold());
+  }
+
+  public static boolean isViolation(double cost) {
+    return !Double.isNaN(cost);
+  }
+
+  @SuppressWarnings("rawtypes")
+  public Violation createViolation(Resource resource, Rule rule, double cost) {
+    return newViolation(resource, rule, cost, null);
+  }
+
+  /**
+   * Same as {@link #createViolation(Resource, Rule, double)}, for checks able to tell which lines of the file must be
+   * fixed. Details are ignored by default.
+   *
+   * @param details data of the file, if it's loaded
+   */
+  @SuppressWarnings("rawtypes")
+  public Violation createViolation(Resource resource, Rule rule, double cost, @Nullable FileDetails details) {
+    return createViolation(resource, rule, cost);
+  }
+
+  /**
+   * @param locations locations in the file listed at the end of the message of the violation. The first line, if any,
+   * is the line of the violation.
+   */
   @SuppressWarnings("rawtypes")
-  public abstract void checkResource(Resource resource, DecoratorContext context, Rule rule);
+  protected final Violation newViolation(Resource resource, Rule rule, double cost, @Nullable ViolationLocations locations) {
+    Violation violation = Violation.create(rule, resource).setCost(cost);
+    if (locations == null) {
+      violation.setMessage(message(cost));
+      return violation;
+    }
+    StringBuilder message = new StringBuilder(message(cost));
+    locations.appendTo(message);
+    violation.setMessage(message.toString());
+    Integer firstLine = locations.first();
+    return firstLine == null ? violation : violation.setLineId(firstLine);
+  }
+
+  /**
+   * Violation raised on the module instead of the violations of this check that are not saved, because their number is
+   * limited.
+   *
+   * @param violations number of violations that are not saved
+   * @param cost total cost of the violations that are not saved
+   */
+  @SuppressWarnings("rawtypes")
+  public Violation createSummaryViolation(Resource module, Rule rule, int violations, double cost) {
+    return Violation.create(rule, module).setCost(cost)
+      .setMessage(violations + " other files violate this rule, for a total remediation cost of " + (long) cost + ".");
+  }
+
+  /**
+   * Checks a single resource and saves the violation, if any, immediately.
+   */
+  @SuppressWarnings("rawtypes")
+  public void checkResource(Resource resource, DecoratorContext context, Rule rule) {
+    if (applicability().accepts(ResourceUtils.isUnitTestClass(resource))) {
+      double cost = evaluate(new MeasureSnapshot().load(context, MeasureSnapshot.toArray(metrics())));
+      if (isViolation(cost)) {
+        context.saveViolation(createViolation(resource, rule, cost));
+      }
+    }
+  }
 
   @Override
   public String toString() {
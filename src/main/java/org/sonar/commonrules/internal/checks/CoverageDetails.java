@@ -0,0 +1,228 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Coverage data by line of a file, used to tell which lines and which branches must be covered. It is only loaded for
+ * the files that violate a check, and only references the data of the measures, which is parsed when the violations
+ * of the coverage checks are created.
+ * <p/>
+ * Data is expected to be sorted by line, as written by {@link org.sonar.api.utils.KeyValueFormat} from sorted maps.
+ */
+final class CoverageDetails {
+
+  /**
+   * Maximum number of lines or ranges of lines listed in a message.
+   */
+  static final int MAX_LISTED_LINES = 50;
+
+  static final List<Metric> METRICS = Collections.unmodifiableList(Arrays.<Metric>asList(CoreMetrics.COVERAGE_LINE_HITS_DATA,
+    CoreMetrics.CONDITIONS_BY_LINE, CoreMetrics.COVERED_CONDITIONS_BY_LINE));
+
+  private final String lineHits;
+  private final String conditions;
+  private final String coveredConditions;
+
+  CoverageDetails(@Nullable String lineHits, @Nullable String conditions, @Nullable String coveredConditions) {
+    this.lineHits = lineHits;
+    this.conditions = conditions;
+    this.coveredConditions = coveredConditions;
+  }
+
+  /**
+   * @return null if the file has no coverage data by line
+   */
+  @CheckForNull
+  static CoverageDetails load(DecoratorContext context) {
+    String lineHits = FileDetails.data(context, CoreMetrics.COVERAGE_LINE_HITS_DATA);
+    String conditions = FileDetails.data(context, CoreMetrics.CONDITIONS_BY_LINE);
+    if (lineHits == null && conditions == null) {
+      return null;
+    }
+    return new CoverageDetails(lineHits, conditions, FileDetails.data(context, CoreMetrics.COVERED_CONDITIONS_BY_LINE));
+  }
+
+  /**
+   * Lines not executed by the unit tests.
+   */
+  ViolationLocations uncoveredLines() {
+    return new ViolationLocations() {
+      @Override
+      Integer first() {
+        if (lineHits != null) {
+          LineDataCursor cursor = new LineDataCursor(lineHits);
+          while (cursor.next()) {
+            if (cursor.value() == 0) {
+              return cursor.line();
+            }
+          }
+        }
+        return null;
+      }
+
+      @Override
+      void appendTo(StringBuilder message) {
+        appendUncoveredLines(message);
+      }
+    };
+  }
+
+  /**
+   * Lines having conditions not fully covered by the unit tests.
+   */
+  ViolationLocations uncoveredConditions() {
+    return new ViolationLocations() {
+      @Override
+      Integer first() {
+        if (conditions != null) {
+          ConditionCursor cursor = new ConditionCursor();
+          if (cursor.nextPartiallyCovered()) {
+            return cursor.line();
+          }
+        }
+        return null;
+      }
+
+      @Override
+      void appendTo(StringBuilder message) {
+        appendPartiallyCoveredLines(message);
+      }
+    };
+  }
+
+  private void appendUncoveredLines(StringBuilder message) {
+    if (lineHits == null) {
+      return;
+    }
+    LineDataCursor cursor = new LineDataCursor(lineHits);
+    int listed = 0;
+    int remaining = 0;
+    int rangeStart = -1;
+    int rangeEnd = -1;
+    while (cursor.next()) {
+      if (cursor.value() != 0) {
+        continue;
+      }
+      int line = cursor.line();
+      if (rangeStart >= 0 && line == rangeEnd + 1) {
+        rangeEnd = line;
+      } else {
+        if (rangeStart >= 0) {
+          if (listed < MAX_LISTED_LINES) {
+            appendRange(message, listed++, rangeStart, rangeEnd);
+          } else {
+            remaining++;
+          }
+        }
+        rangeStart = line;
+        rangeEnd = line;
+      }
+    }
+    if (rangeStart >= 0) {
+      if (listed < MAX_LISTED_LINES) {
+        appendRange(message, listed++, rangeStart, rangeEnd);
+      } else {
+        remaining++;
+      }
+    }
+    appendEnd(message, listed, remaining);
+  }
+
+  private static void appendRange(StringBuilder message, int index, int start, int end) {
+    message.append(index == 0 ? " Uncovered lines: " : ", ").append(start);
+    if (end > start) {
+      message.append('-').append(end);
+    }
+  }
+
+  private void appendPartiallyCoveredLines(StringBuilder message) {
+    if (conditions == null) {
+      return;
+    }
+    ConditionCursor cursor = new ConditionCursor();
+    int listed = 0;
+    int remaining = 0;
+    while (cursor.nextPartiallyCovered()) {
+      if (listed < MAX_LISTED_LINES) {
+        message.append(listed == 0 ? " Lines with uncovered conditions: " : ", ")
+          .append(cursor.line()).append(" (").append(cursor.coveredConditions()).append('/').append(cursor.conditions()).append(" covered)");
+        listed++;
+      } else {
+        remaining++;
+      }
+    }
+    appendEnd(message, listed, remaining);
+  }
+
+  private static void appendEnd(StringBuilder message, int listed, int remaining) {
+    if (remaining > 0) {
+      message.append(" and ").append(remaining).append(" more");
+    }
+    if (listed > 0) {
+      message.append('.');
+    }
+  }
+
+  /**
+   * Joins the conditions and the covered conditions by line, both being sorted by line.
+   */
+  private final class ConditionCursor {
+    private final LineDataCursor conditions = new LineDataCursor(CoverageDetails.this.conditions);
+    private final LineDataCursor covered = coveredConditions == null ? null : new LineDataCursor(coveredConditions);
+    private boolean hasCovered = covered != null && covered.next();
+    private int coveredCount;
+
+    boolean nextPartiallyCovered() {
+      while (conditions.next()) {
+        int line = conditions.line();
+        while (hasCovered && covered.line() < line) {
+          hasCovered = covered.next();
+        }
+        coveredCount = hasCovered && covered.line() == line ? covered.value() : 0;
+        if (coveredCount < conditions.value()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    int line() {
+      return conditions.line();
+    }
+
+    int conditions() {
+      return conditions.value();
+    }
+
+    int coveredConditions() {
+      return coveredCount;
+    }
+  }
+}
@@ -19,14 +19,16 @@
  */
 package org.sonar.commonrules.internal.checks;
 
-import org.sonar.api.batch.DecoratorContext;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Violation;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 @Rule(
   key = "DuplicatedBlocks",
   name = "Duplicated blocks",
@@ -35,20 +37,29 @@ import org.sonar.check.Rule;
     + "It gives the number of blocks in the file.</p>")
 public class DuplicatedBlocksCheck extends CommonCheck {
 
-  @SuppressWarnings("rawtypes")
+  private static final Set<CheckMetric> METRICS = Collections.unmodifiableSet(EnumSet.of(CheckMetric.DUPLICATED_BLOCKS));
+  private static final MessageTemplate MESSAGE = MessageTemplate.parse("{count} duplicated blocks of code.");
+
+  @Override
+  public Set<CheckMetric> metrics() {
+    return METRICS;
+  }
+
   @Override
-  public void checkResource(Resource resource, DecoratorContext context, org.sonar.api.rules.Rule rule) {
-    double duplicatedBlocks = MeasureUtils.getValue(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS), 0.0);
-    if (duplicatedBlocks > 0) {
-      Violation violation = createViolation(resource, rule, duplicatedBlocks);
-      context.saveViolation(violation);
-    }
+  public double evaluate(MeasureSnapshot measures) {
+    double duplicatedBlocks = measures.get(CheckMetric.DUPLICATED_BLOCKS);
+    return duplicatedBlocks > 0 ? duplicatedBlocks : NO_VIOLATION;
   }
 
+  @Override
+  public MessageTemplate messageTemplate() {
+    return MESSAGE;
+  }
+
+  @Override
   @SuppressWarnings("rawtypes")
-  private Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double duplicatedBlocks) {
-    Violation violation = Violation.create(rule, resource).setCost(duplicatedBlocks);
-    violation.setMessage((int) duplicatedBlocks + " duplicated blocks of code.");
-    return violation;
+  public Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double cost, @Nullable FileDetails details) {
+    DuplicationDetails duplications = details == null ? null : details.duplications();
+    return newViolation(resource, rule, cost, duplications == null ? null : duplications.duplicatedBlocks());
   }
 }
@@ -0,0 +1,198 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Duplicated blocks of a file, read from the XML data of {@link org.sonar.api.measures.CoreMetrics#DUPLICATIONS_DATA}.
+ * Like {@link CoverageDetails}, only a reference to the data is kept when the file is decorated. The data is read with
+ * a StAX reader, without building a DOM, and reading stops as soon as the maximum number of blocks is reached, so that
+ * generated files having thousands of duplications cost no more than the blocks that are listed.
+ * <p/>
+ * Both formats are supported: groups of blocks <code>&lt;g&gt;&lt;b s="10" l="5" r="key"/&gt;...&lt;/g&gt;</code>, the first
+ * block of a group being in the file, and pairs <code>&lt;duplication start="10" lines="5" target-resource="key"/&gt;</code>.
+ */
+final class DuplicationDetails {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DuplicationDetails.class);
+
+  private final String data;
+  private final int maxBlocks;
+
+  DuplicationDetails(String data, int maxBlocks) {
+    this.data = data;
+    this.maxBlocks = maxBlocks;
+  }
+
+  private static XMLInputFactory newXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * Duplicated blocks of the file, listed with the other files involved.
+   */
+  ViolationLocations duplicatedBlocks() {
+    return new ViolationLocations() {
+      @Override
+      Integer first() {
+        List<DuplicatedBlock> blocks = new ArrayList<DuplicatedBlock>(1);
+        read(blocks, 1);
+        return blocks.isEmpty() ? null : blocks.get(0).start;
+      }
+
+      @Override
+      void appendTo(StringBuilder message) {
+        List<DuplicatedBlock> blocks = new ArrayList<DuplicatedBlock>();
+        boolean truncated = read(blocks, maxBlocks);
+        for (int i = 0; i < blocks.size(); i++) {
+          message.append(i == 0 ? " Duplicated blocks: " : ", ");
+          blocks.get(i).appendTo(message);
+        }
+        if (truncated) {
+          message.append(", ...");
+        }
+        if (!blocks.isEmpty()) {
+          message.append('.');
+        }
+      }
+    };
+  }
+
+  /**
+   * Reads the first blocks of the file. Malformed blocks are skipped and malformed XML stops the reading.
+   *
+   * @return true if the file has more blocks
+   */
+  boolean read(List<DuplicatedBlock> blocks, int max) {
+    XMLStreamReader reader = null;
+    try {
+      // factories are not guaranteed to be thread-safe. Only the files violating the check are read.
+      reader = newXmlInputFactory().createXMLStreamReader(new StringReader(data));
+      DuplicatedBlock group = null;
+      boolean newGroup = false;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String name = reader.getLocalName();
+          if ("g".equals(name)) {
+            newGroup = true;
+          } else if ("b".equals(name)) {
+            int start = intAttribute(reader, "s");
+            int length = intAttribute(reader, "l");
+            if (newGroup) {
+              if (start <= 0 || length <= 0) {
+                // the origin of the group is unknown
+                group = null;
+              } else if (blocks.size() == max) {
+                return true;
+              } else {
+                group = new DuplicatedBlock(start, length);
+                blocks.add(group);
+              }
+              newGroup = false;
+            } else if (group != null) {
+              group.addOtherFile(reader.getAttributeValue(null, "r"));
+            }
+          } else if ("duplication".equals(name)) {
+            int start = intAttribute(reader, "start");
+            int length = intAttribute(reader, "lines");
+            if (start > 0 && length > 0) {
+              if (group == null || group.start != start || group.length != length) {
+                if (blocks.size() == max) {
+                  return true;
+                }
+                group = new DuplicatedBlock(start, length);
+                blocks.add(group);
+              }
+              group.addOtherFile(reader.getAttributeValue(null, "target-resource"));
+            }
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && "g".equals(reader.getLocalName())) {
+          group = null;
+        }
+      }
+    } catch (XMLStreamException e) {
+      LOG.debug("Invalid duplications data, only the first blocks are listed", e);
+    } finally {
+      close(reader);
+    }
+    return false;
+  }
+
+  private static int intAttribute(XMLStreamReader reader, String name) {
+    String value = reader.getAttributeValue(null, name);
+    try {
+      return value == null ? -1 : Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void close(@CheckForNull XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // nothing to release, the data is a string
+      }
+    }
+  }
+
+  static final class DuplicatedBlock {
+    final int start;
+    final int length;
+    final List<String> otherFiles = new ArrayList<String>(2);
+
+    DuplicatedBlock(int start, int length) {
+      this.start = start;
+      this.length = length;
+    }
+
+    void addOtherFile(@CheckForNull String key) {
+      if (key != null && !otherFiles.contains(key)) {
+        otherFiles.add(key);
+      }
+    }
+
+    void appendTo(StringBuilder message) {
+      message.append("lines ").append(start).append('-').append(start + length - 1);
+      for (int i = 0; i < otherFiles.size(); i++) {
+        message.append(i == 0 ? " (also in " : ", ").append(otherFiles.get(i));
+      }
+      if (!otherFiles.isEmpty()) {
+        message.append(')');
+      }
+    }
+  }
+}
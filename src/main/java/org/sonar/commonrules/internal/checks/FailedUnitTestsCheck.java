@@ -19,15 +19,16 @@
  */
 package org.sonar.commonrules.internal.checks;
 
-import org.sonar.api.batch.DecoratorContext;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.resources.Resource;
-import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.rules.Violation;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 @Rule(
   key = "FailedUnitTests",
   name = "Failed unit tests",
@@ -36,17 +37,36 @@ import org.sonar.check.Rule;
     "Those tests should be handled as soon as possible to reduce the cost to fix the corresponding regressions.</p>")
 public class FailedUnitTestsCheck extends CommonCheck {
 
-  @SuppressWarnings("rawtypes")
+  private static final Set<CheckMetric> METRICS = Collections.unmodifiableSet(EnumSet.of(CheckMetric.TEST_ERRORS, CheckMetric.TEST_FAILURES));
+  private static final MessageTemplate MESSAGE = MessageTemplate.parse("Some tests are not successful. You should fix them.");
+
+  @Override
+  public Set<CheckMetric> metrics() {
+    return METRICS;
+  }
+
+  @Override
+  public Applicability applicability() {
+    return Applicability.UNIT_TEST_FILES;
+  }
+
   @Override
-  public void checkResource(Resource resource, DecoratorContext context, org.sonar.api.rules.Rule rule) {
-    double testErrors = MeasureUtils.getValue(context.getMeasure(CoreMetrics.TEST_ERRORS), 0.0);
-    double testFailures = MeasureUtils.getValue(context.getMeasure(CoreMetrics.TEST_FAILURES), 0.0);
+  public double evaluate(MeasureSnapshot measures) {
+    double testErrors = measures.get(CheckMetric.TEST_ERRORS);
+    double testFailures = measures.get(CheckMetric.TEST_FAILURES);
     double testFailuresAndErrors = testErrors + testFailures;
-    if (ResourceUtils.isUnitTestClass(resource) && testFailuresAndErrors > 0) {
-      Violation violation = Violation.create(rule, resource).setCost(testFailuresAndErrors);
-      violation.setMessage("Some tests are not successful. You should fix them.");
-      context.saveViolation(violation);
-    }
+    return testFailuresAndErrors > 0 ? testFailuresAndErrors : NO_VIOLATION;
+  }
+
+  @Override
+  public MessageTemplate messageTemplate() {
+    return MESSAGE;
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double cost, @Nullable FileDetails details) {
+    return newViolation(resource, rule, cost, details == null ? null : details.failedTests());
   }
 
 }
@@ -0,0 +1,207 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Resource;
+import org.sonar.commonrules.internal.reports.TestClassResults;
+import org.sonar.commonrules.internal.reports.UnitTestIndex;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Data of a file, beyond the measures read by the checks, telling where its violations must be fixed. It's only loaded
+ * when enabled by the settings, and passed to {@link CommonCheck#createViolation(org.sonar.api.resources.Resource,
+ * org.sonar.api.rules.Rule, double, FileDetails)}.
+ */
+public final class FileDetails {
+
+  /**
+   * Maximum number of tests listed in a message.
+   */
+  static final int MAX_LISTED_TESTS = 50;
+
+  private final CoverageDetails coverage;
+  private final DuplicationDetails duplications;
+  private final TestClassResults unitTests;
+
+  FileDetails(@Nullable CoverageDetails coverage, @Nullable DuplicationDetails duplications) {
+    this(coverage, duplications, null);
+  }
+
+  FileDetails(@Nullable CoverageDetails coverage, @Nullable DuplicationDetails duplications, @Nullable TestClassResults unitTests) {
+    this.coverage = coverage;
+    this.duplications = duplications;
+    this.unitTests = unitTests;
+  }
+
+  @CheckForNull
+  CoverageDetails coverage() {
+    return coverage;
+  }
+
+  @CheckForNull
+  DuplicationDetails duplications() {
+    return duplications;
+  }
+
+  @CheckForNull
+  ViolationLocations failedTests() {
+    return unitTests == null ? null : new TestNames(" Failed tests: ", unitTests.failedTests());
+  }
+
+  @CheckForNull
+  ViolationLocations skippedTests() {
+    return unitTests == null ? null : new TestNames(" Skipped tests: ", unitTests.skippedTests());
+  }
+
+  @CheckForNull
+  static String data(DecoratorContext context, Metric metric) {
+    Measure measure = context.getMeasure(metric);
+    return measure == null ? null : measure.getData();
+  }
+
+  /**
+   * Tests have no line, they are only listed in the message.
+   */
+  private static final class TestNames extends ViolationLocations {
+    private final String prefix;
+    private final List<String> names;
+
+    TestNames(String prefix, List<String> names) {
+      this.prefix = prefix;
+      this.names = names;
+    }
+
+    @Override
+    Integer first() {
+      return null;
+    }
+
+    @Override
+    void appendTo(StringBuilder message) {
+      int listed = Math.min(names.size(), MAX_LISTED_TESTS);
+      for (int i = 0; i < listed; i++) {
+        message.append(i == 0 ? prefix : ", ").append(names.get(i));
+      }
+      if (names.size() > listed) {
+        message.append(" and ").append(names.size() - listed).append(" more");
+      }
+      if (listed > 0) {
+        message.append('.');
+      }
+    }
+  }
+
+  /**
+   * Loads the details that are enabled.
+   */
+  public static final class Loader {
+
+    public static final Loader DISABLED = new Loader(false, 0, UnitTestIndex.EMPTY);
+
+    private final boolean coverage;
+    private final int maxDuplicatedBlocks;
+    private final UnitTestIndex unitTests;
+
+    /**
+     * @param coverage whether the lines and the conditions to cover are loaded
+     * @param maxDuplicatedBlocks maximum number of duplicated blocks listed per file, 0 if they are not loaded
+     * @param unitTests failed and skipped tests of the module, empty if they are not listed
+     */
+    public Loader(boolean coverage, int maxDuplicatedBlocks, UnitTestIndex unitTests) {
+      if (maxDuplicatedBlocks < 0) {
+        throw new IllegalArgumentException("The maximum number of duplicated blocks must not be negative: " + maxDuplicatedBlocks);
+      }
+      this.coverage = coverage;
+      this.maxDuplicatedBlocks = maxDuplicatedBlocks;
+      this.unitTests = unitTests;
+    }
+
+    public boolean isEnabled() {
+      return coverage || maxDuplicatedBlocks > 0 || !unitTests.isEmpty();
+    }
+
+    /**
+     * @param checkMetrics measures of the active checks
+     * @return whether the active checks list the failed or skipped tests
+     */
+    public static boolean usesUnitTests(Set<CheckMetric> checkMetrics) {
+      return checkMetrics.contains(CheckMetric.TEST_FAILURES) || checkMetrics.contains(CheckMetric.SKIPPED_TESTS);
+    }
+
+    /**
+     * @param checkMetrics measures of the active checks
+     * @return the loader of the details used by the active checks
+     */
+    public Loader restrictTo(Set<CheckMetric> checkMetrics) {
+      boolean coverageChecks = checkMetrics.contains(CheckMetric.LINE_COVERAGE) || checkMetrics.contains(CheckMetric.BRANCH_COVERAGE);
+      int maxBlocks = checkMetrics.contains(CheckMetric.DUPLICATED_BLOCKS) ? maxDuplicatedBlocks : 0;
+      return new Loader(coverage && coverageChecks, maxBlocks, usesUnitTests(checkMetrics) ? unitTests : UnitTestIndex.EMPTY);
+    }
+
+    /**
+     * Measures read by {@link #load(Resource, boolean, DecoratorContext)}.
+     */
+    public List<Metric> metrics() {
+      if (!isEnabled()) {
+        return Collections.emptyList();
+      }
+      List<Metric> metrics = new ArrayList<Metric>(CoverageDetails.METRICS.size() + 1);
+      if (coverage) {
+        metrics.addAll(CoverageDetails.METRICS);
+      }
+      if (maxDuplicatedBlocks > 0) {
+        metrics.add(CoreMetrics.DUPLICATIONS_DATA);
+      }
+      return metrics;
+    }
+
+    /**
+     * Must only be called on the files that violate a check. Only references the data of the measures, which is parsed
+     * when the messages of the violations are created.
+     *
+     * @return null if the file has no details
+     */
+    @CheckForNull
+    @SuppressWarnings("rawtypes")
+    public FileDetails load(Resource resource, boolean unitTestFile, DecoratorContext context) {
+      CoverageDetails coverageDetails = coverage && !unitTestFile ? CoverageDetails.load(context) : null;
+      TestClassResults unitTestResults = unitTestFile && !unitTests.isEmpty() && resource.getKey() != null ? unitTests.get(resource.getKey()) : null;
+      DuplicationDetails duplicationDetails = null;
+      if (maxDuplicatedBlocks > 0) {
+        String data = data(context, CoreMetrics.DUPLICATIONS_DATA);
+        duplicationDetails = data == null ? null : new DuplicationDetails(data, maxDuplicatedBlocks);
+      }
+      if (coverageDetails == null && duplicationDetails == null && unitTestResults == null) {
+        return null;
+      }
+      return new FileDetails(coverageDetails, duplicationDetails, unitTestResults);
+    }
+  }
+}
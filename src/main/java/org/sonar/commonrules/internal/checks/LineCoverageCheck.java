@@ -19,15 +19,17 @@
  */
 package org.sonar.commonrules.internal.checks;
 
-import org.sonar.api.batch.DecoratorContext;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Violation;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 @Rule(
   key = "InsufficientLineCoverage",
   name = "Insufficient line coverage by unit tests",
@@ -37,34 +39,57 @@ import org.sonar.check.RuleProperty;
 public class LineCoverageCheck extends CommonCheck {
 
   private static final double DEFAULT_MIN_RATIO = 65;
+  private static final Set<CheckMetric> METRICS = Collections.unmodifiableSet(EnumSet.of(CheckMetric.LINE_COVERAGE, CheckMetric.UNCOVERED_LINES, CheckMetric.LINES_TO_COVER));
+  private static final MessageTemplate MESSAGE = MessageTemplate.parse(
+    "{count} more lines of code need to be covered by unit tests to reach the minimum threshold of {threshold}% lines coverage.");
 
   @RuleProperty(key = "minimumLineCoverageRatio", description = "The minimum required line coverage ratio.", defaultValue = "" + DEFAULT_MIN_RATIO)
   private double minimumLineCoverageRatio = DEFAULT_MIN_RATIO;
 
-  @SuppressWarnings("rawtypes")
+  public LineCoverageCheck() {
+    // parameters are injected by AnnotationCheckFactory
+  }
+
+  public LineCoverageCheck(double minimumLineCoverageRatio) {
+    this.minimumLineCoverageRatio = minimumLineCoverageRatio;
+    activate();
+  }
+
+  @Override
+  public Set<CheckMetric> metrics() {
+    return METRICS;
+  }
+
   @Override
-  public void checkResource(Resource resource, DecoratorContext context, org.sonar.api.rules.Rule rule) {
-    double lineCoverage = MeasureUtils.getValue(context.getMeasure(CoreMetrics.LINE_COVERAGE), 0.0);
-    if (context.getMeasure(CoreMetrics.LINE_COVERAGE) != null && lineCoverage < minimumLineCoverageRatio) {
-      double uncoveredLines = MeasureUtils.getValue(context.getMeasure(CoreMetrics.UNCOVERED_LINES), 0.0);
-      double linesToCover = MeasureUtils.getValue(context.getMeasure(CoreMetrics.LINES_TO_COVER), 0.0);
-      double linesToCoverToReachThreshold = Math.ceil((linesToCover * minimumLineCoverageRatio / 100) - (linesToCover - uncoveredLines));
+  public Applicability applicability() {
+    return Applicability.MAIN_FILES;
+  }
 
-      Violation violation = createViolation(resource, rule, linesToCoverToReachThreshold);
-      context.saveViolation(violation);
+  @Override
+  public double evaluate(MeasureSnapshot measures) {
+    double lineCoverage = measures.get(CheckMetric.LINE_COVERAGE);
+    if (measures.has(CheckMetric.LINE_COVERAGE) && lineCoverage < minimumLineCoverageRatio) {
+      double uncoveredLines = measures.get(CheckMetric.UNCOVERED_LINES);
+      double linesToCover = measures.get(CheckMetric.LINES_TO_COVER);
+      return Math.ceil((linesToCover * minimumLineCoverageRatio / 100) - (linesToCover - uncoveredLines));
     }
+    return NO_VIOLATION;
   }
 
-  @SuppressWarnings("rawtypes")
-  private Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double linesToCoverToReachThreshold) {
-    Violation violation = Violation.create(rule, resource).setCost(linesToCoverToReachThreshold);
-    violation.setMessage((int) linesToCoverToReachThreshold
-      + " more lines of code need to be covered by unit tests to reach the minimum threshold of " + minimumLineCoverageRatio
-      + "% lines coverage.");
-    return violation;
+  @Override
+  public MessageTemplate messageTemplate() {
+    return MESSAGE;
   }
 
-  public void setMinimumLineCoverageRatio(int threshold) {
-    this.minimumLineCoverageRatio = threshold;
+  @Override
+  public double threshold() {
+    return minimumLineCoverageRatio;
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double cost, @Nullable FileDetails details) {
+    CoverageDetails coverage = details == null ? null : details.coverage();
+    return newViolation(resource, rule, cost, coverage == null ? null : coverage.uncoveredLines());
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+/**
+ * Cursor over the <code>line=value;line=value</code> data of the measures by line, like
+ * {@link org.sonar.api.measures.CoreMetrics#COVERAGE_LINE_HITS_DATA}. Entries are parsed in place, without splitting
+ * the data nor allocating anything, so that data of several megabytes can be read entry by entry. Malformed entries are
+ * skipped and values too large for an int are saturated.
+ */
+final class LineDataCursor {
+
+  private final CharSequence data;
+  private int position = 0;
+  private int line;
+  private int value;
+
+  LineDataCursor(CharSequence data) {
+    this.data = data;
+  }
+
+  /**
+   * Moves to the next valid entry.
+   *
+   * @return false if there are no more entries
+   */
+  boolean next() {
+    int length = data.length();
+    while (position < length) {
+      int entryLine = 0;
+      int entryValue = 0;
+      int lineDigits = 0;
+      int valueDigits = 0;
+      boolean inValue = false;
+      boolean valid = true;
+      while (position < length) {
+        char c = data.charAt(position++);
+        if (c == ';') {
+          break;
+        } else if (c == '=' && !inValue) {
+          inValue = true;
+        } else if (c >= '0' && c <= '9') {
+          if (inValue) {
+            entryValue = accumulate(entryValue, c);
+            valueDigits++;
+          } else {
+            entryLine = accumulate(entryLine, c);
+            lineDigits++;
+          }
+        } else {
+          valid = false;
+        }
+      }
+      if (valid && inValue && lineDigits > 0 && valueDigits > 0) {
+        line = entryLine;
+        value = entryValue;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int accumulate(int number, char digit) {
+    int result = number * 10 + (digit - '0');
+    return result < number ? Integer.MAX_VALUE : result;
+  }
+
+  int line() {
+    return line;
+  }
+
+  int value() {
+    return value;
+  }
+}
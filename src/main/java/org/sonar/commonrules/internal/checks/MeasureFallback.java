@@ -0,0 +1,37 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+/**
+ * Computes measures of main files that are not computed by the plugin of their language, for example from reports or
+ * from the sources. Applied after the measures are read from the context, and before the checks are evaluated.
+ */
+public interface MeasureFallback {
+
+  /**
+   * Sets the measures of the file that are not available in the snapshot. Measures read from the context must not be
+   * overridden. Called on the thread of the decorator.
+   *
+   * @param resourceKey key of a main file: the name of a class, like <code>org.sonar.Foo</code>, or a path like
+   * <code>org/sonar/Foo.java</code>
+   */
+  void complete(String resourceKey, MeasureSnapshot measures);
+
+}
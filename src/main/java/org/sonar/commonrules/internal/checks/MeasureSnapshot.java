@@ -0,0 +1,86 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.MeasureUtils;
+
+import java.util.Collection;
+
+/**
+ * Values of the measures of a single resource, read once from the {@link DecoratorContext} and shared by all the checks
+ * executed on this resource. Absent measures are tracked in a bit mask and are read as 0.
+ * <p/>
+ * Instances are not thread-safe. The decorator reuses the same instance for all the resources it visits.
+ */
+public final class MeasureSnapshot {
+
+  private final double[] values = new double[CheckMetric.values().length];
+  private long present = 0L;
+
+  public static CheckMetric[] toArray(Collection<CheckMetric> metrics) {
+    return metrics.toArray(new CheckMetric[metrics.size()]);
+  }
+
+  public static long maskOf(Collection<CheckMetric> metrics) {
+    long mask = 0L;
+    for (CheckMetric metric : metrics) {
+      mask |= metric.mask();
+    }
+    return mask;
+  }
+
+  public MeasureSnapshot load(DecoratorContext context, CheckMetric[] metrics) {
+    present = 0L;
+    for (CheckMetric metric : metrics) {
+      Measure measure = context.getMeasure(metric.metric());
+      if (measure != null) {
+        present |= metric.mask();
+        values[metric.ordinal()] = MeasureUtils.getValue(measure, 0.0);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Sets a measure that is not read from the context, for example a measure computed from a report.
+   */
+  public MeasureSnapshot set(CheckMetric metric, double value) {
+    present |= metric.mask();
+    values[metric.ordinal()] = value;
+    return this;
+  }
+
+  public boolean has(CheckMetric metric) {
+    return (present & metric.mask()) != 0L;
+  }
+
+  /**
+   * @param mask as computed by {@link #maskOf(Collection)}
+   */
+  public boolean hasAny(long mask) {
+    return (present & mask) != 0L;
+  }
+
+  public double get(CheckMetric metric) {
+    return has(metric) ? values[metric.ordinal()] : 0.0;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message of the violations raised by a check, split once into literal parts and placeholders so that rendering a
+ * message for a given cost neither parses nor concatenates more than needed. The placeholders are
+ * <code>{count}</code>, the cost truncated to an integer, and <code>{threshold}</code>, the threshold of the check.
+ * A template without placeholders always renders the same shared instance.
+ */
+public final class MessageTemplate {
+
+  private static final String COUNT = "{count}";
+  private static final String THRESHOLD = "{threshold}";
+
+  private final String[] literals;
+  private final boolean[] thresholds;
+  private final int literalsLength;
+
+  private MessageTemplate(String[] literals, boolean[] thresholds) {
+    this.literals = literals;
+    this.thresholds = thresholds;
+    int length = 0;
+    for (String literal : literals) {
+      length += literal.length();
+    }
+    this.literalsLength = length;
+  }
+
+  public static MessageTemplate parse(String template) {
+    List<String> literals = new ArrayList<String>();
+    List<Boolean> thresholds = new ArrayList<Boolean>();
+    int from = 0;
+    int brace = template.indexOf('{');
+    while (brace >= 0) {
+      boolean count = template.startsWith(COUNT, brace);
+      if (!count && !template.startsWith(THRESHOLD, brace)) {
+        throw new IllegalArgumentException("Unknown placeholder at index " + brace + " of message template: " + template);
+      }
+      literals.add(template.substring(from, brace));
+      thresholds.add(!count);
+      from = brace + (count ? COUNT.length() : THRESHOLD.length());
+      brace = template.indexOf('{', from);
+    }
+    literals.add(template.substring(from));
+    boolean[] kinds = new boolean[thresholds.size()];
+    for (int i = 0; i < kinds.length; i++) {
+      kinds[i] = thresholds.get(i);
+    }
+    return new MessageTemplate(literals.toArray(new String[literals.size()]), kinds);
+  }
+
+  public boolean isConstant() {
+    return thresholds.length == 0;
+  }
+
+  public String render(double cost, double threshold) {
+    if (isConstant()) {
+      return literals[0];
+    }
+    StringBuilder message = new StringBuilder(literalsLength + 8 * thresholds.length);
+    message.append(literals[0]);
+    for (int i = 0; i < thresholds.length; i++) {
+      if (thresholds[i]) {
+        message.append(threshold);
+      } else {
+        message.append((int) cost);
+      }
+      message.append(literals[i + 1]);
+    }
+    return message.toString();
+  }
+
+}
@@ -19,15 +19,16 @@
  */
 package org.sonar.commonrules.internal.checks;
 
-import org.sonar.api.batch.DecoratorContext;
-import org.sonar.api.measures.CoreMetrics;
-import org.sonar.api.measures.MeasureUtils;
 import org.sonar.api.resources.Resource;
-import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.rules.Violation;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 @Rule(
   key = "SkippedUnitTests",
   name = "Skipped unit tests",
@@ -36,15 +37,34 @@ import org.sonar.check.Rule;
     "Either they should be activated again (and updated) or they should be removed.</p>")
 public class SkippedUnitTestsCheck extends CommonCheck {
 
-  @SuppressWarnings("rawtypes")
+  private static final Set<CheckMetric> METRICS = Collections.unmodifiableSet(EnumSet.of(CheckMetric.SKIPPED_TESTS));
+  private static final MessageTemplate MESSAGE = MessageTemplate.parse("Some tests are skipped. You should activate them or remove them.");
+
+  @Override
+  public Set<CheckMetric> metrics() {
+    return METRICS;
+  }
+
+  @Override
+  public Applicability applicability() {
+    return Applicability.UNIT_TEST_FILES;
+  }
+
+  @Override
+  public double evaluate(MeasureSnapshot measures) {
+    double skippedTests = measures.get(CheckMetric.SKIPPED_TESTS);
+    return skippedTests > 0 ? skippedTests : NO_VIOLATION;
+  }
+
   @Override
-  public void checkResource(Resource resource, DecoratorContext context, org.sonar.api.rules.Rule rule) {
-    double skippedTests = MeasureUtils.getValue(context.getMeasure(CoreMetrics.SKIPPED_TESTS), 0.0);
-    if (ResourceUtils.isUnitTestClass(resource) && skippedTests > 0) {
-      Violation violation = Violation.create(rule, resource).setCost(skippedTests);
-      violation.setMessage("Some tests are skipped. You should activate them or remove them.");
-      context.saveViolation(violation);
-    }
+  public MessageTemplate messageTemplate() {
+    return MESSAGE;
+  }
+
+  @Override
+  @SuppressWarnings("rawtypes")
+  public Violation createViolation(Resource resource, org.sonar.api.rules.Rule rule, double cost, @Nullable FileDetails details) {
+    return newViolation(resource, rule, cost, details == null ? null : details.skippedTests());
   }
 
 }
@@ -0,0 +1,41 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Where a violation must be fixed in a file: lines, duplicated blocks or tests. Both methods parse the data of the file again,
+ * they are called once per violation, when it's created.
+ */
+abstract class ViolationLocations {
+
+  /**
+   * @return the first line, set as line of the violation, or null if none or if locations are not lines
+   */
+  @CheckForNull
+  abstract Integer first();
+
+  /**
+   * Appends a sentence listing the locations to the message of the violation, or nothing if none.
+   */
+  abstract void appendTo(StringBuilder message);
+
+}
@@ -0,0 +1,165 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.commonrules.internal.CommonRulesConstants;
+import org.sonar.commonrules.internal.checks.CommonCheck;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Number of evaluations, evaluation time, number of violations and total remediation cost of each check, over the
+ * analysis of a module in a language. While {@link #register() registered}, published as the MBean
+ * {@code org.sonar.commonrules:type=CheckStatistics,language=<key>}.
+ * <p/>
+ * Counters are only written by the thread of the decorator. JMX reads them without synchronization, so that it may
+ * see values that are slightly late, which does not matter for statistics.
+ */
+public final class CheckStatistics implements CheckStatisticsMBean {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CheckStatistics.class);
+  private static final String[] RULE_KEYS = ruleKeys();
+
+  private final String language;
+  private final long[] invocations = new long[RULE_KEYS.length];
+  private final long[] nanos = new long[RULE_KEYS.length];
+  private final long[] violations = new long[RULE_KEYS.length];
+  private final double[] costs = new double[RULE_KEYS.length];
+  private ObjectName registeredName;
+
+  public CheckStatistics(String language) {
+    this.language = language;
+  }
+
+  private static String[] ruleKeys() {
+    String[] keys = new String[CommonRulesConstants.CLASSES.size()];
+    for (int i = 0; i < keys.length; i++) {
+      Class<?> checkClass = CommonRulesConstants.CLASSES.get(i);
+      keys[i] = checkClass.getAnnotation(org.sonar.check.Rule.class).key();
+    }
+    return keys;
+  }
+
+  /**
+   * Publishes the statistics in the platform MBean server, unless statistics of the same language are already
+   * published, for example by a module analyzed in parallel. Must be followed by {@link #unregister()}.
+   */
+  public synchronized void register() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName("org.sonar.commonrules:type=CheckStatistics,language=" + ObjectName.quote(language));
+      if (registeredName == null && !server.isRegistered(name)) {
+        server.registerMBean(this, name);
+        registeredName = name;
+      }
+    } catch (JMException e) {
+      LOG.warn("Fail to publish the statistics of common rules in JMX", e);
+    }
+  }
+
+  /**
+   * Removes the statistics from the platform MBean server, if they were published by {@link #register()}.
+   */
+  public synchronized void unregister() {
+    if (registeredName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+      } catch (JMException e) {
+        LOG.warn("Fail to remove the statistics of common rules from JMX", e);
+      }
+      registeredName = null;
+    }
+  }
+
+  synchronized boolean isRegistered() {
+    return registeredName != null;
+  }
+
+  /**
+   * @return the index of the check in the counters
+   */
+  static int slotOf(Class<?> checkClass) {
+    return CommonRulesConstants.CLASSES.indexOf(checkClass);
+  }
+
+  /**
+   * @param cost {@link CommonCheck#NO_VIOLATION} if no violation
+   */
+  void record(int slot, long elapsedNanos, double cost) {
+    invocations[slot]++;
+    nanos[slot] += elapsedNanos;
+    if (CommonCheck.isViolation(cost)) {
+      violations[slot]++;
+      costs[slot] += cost;
+    }
+  }
+
+  public String getLanguage() {
+    return language;
+  }
+
+  public String[] getRuleKeys() {
+    return RULE_KEYS.clone();
+  }
+
+  public long[] getInvocations() {
+    return invocations.clone();
+  }
+
+  public long[] getNanos() {
+    return nanos.clone();
+  }
+
+  public long[] getViolations() {
+    return violations.clone();
+  }
+
+  public double[] getRemediationCosts() {
+    return costs.clone();
+  }
+
+  /**
+   * Starts counting from zero. An evaluation in progress may be partially counted.
+   */
+  public void reset() {
+    Arrays.fill(invocations, 0L);
+    Arrays.fill(nanos, 0L);
+    Arrays.fill(violations, 0L);
+    Arrays.fill(costs, 0.0);
+  }
+
+  /**
+   * Logs one line per evaluated check.
+   */
+  public void log() {
+    for (int i = 0; i < RULE_KEYS.length; i++) {
+      if (invocations[i] > 0) {
+        LOG.info("Common rule {} on {}: {} evaluations in {} ms, {} violations, remediation cost {}", new Object[] {RULE_KEYS[i], language,
+          invocations[i], nanos[i] / 1000000L, violations[i], costs[i]});
+      }
+    }
+  }
+}
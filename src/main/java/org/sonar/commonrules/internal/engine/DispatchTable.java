@@ -0,0 +1,200 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.engine;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.checks.AnnotationCheckFactory;
+import org.sonar.api.rules.Rule;
+import org.sonar.commonrules.internal.checks.Applicability;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.CommonCheck;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Active checks and their rules, resolved once per module so that the decoration of a resource is a plain iteration
+ * over arrays. Checks are split into one lane for main files and one lane for unit test files, according to their
+ * {@link Applicability}, so that a resource only reads the measures of the checks that apply to it.
+ * <p/>
+ * If {@link CheckStatistics} are given, evaluations are timed and counted.
+ */
+public final class DispatchTable {
+
+  public static final DispatchTable EMPTY = new DispatchTable(new CommonCheck[0], new Rule[0], null);
+
+  private final CommonCheck[] checks;
+  private final Rule[] rules;
+  private final Lane mainLane;
+  private final Lane unitTestLane;
+  private final Set<CheckMetric> metrics;
+
+  private DispatchTable(CommonCheck[] checks, Rule[] rules, @Nullable CheckStatistics statistics) {
+    this.checks = checks;
+    this.rules = rules;
+    this.mainLane = new Lane(checks, false, statistics);
+    this.unitTestLane = new Lane(checks, true, statistics);
+    Set<CheckMetric> union = EnumSet.noneOf(CheckMetric.class);
+    for (CommonCheck check : checks) {
+      union.addAll(check.metrics());
+    }
+    this.metrics = Collections.unmodifiableSet(union);
+  }
+
+  public static DispatchTable create(AnnotationCheckFactory checkFactory) {
+    return create(checkFactory, null);
+  }
+
+  /**
+   * Checks are {@link CommonCheck#activate() activated} once, right after their parameters are injected.
+   *
+   * @param statistics null if evaluations are not counted
+   */
+  public static DispatchTable create(AnnotationCheckFactory checkFactory, @Nullable CheckStatistics statistics) {
+    Collection<?> activeChecks = checkFactory.getChecks();
+    CommonCheck[] checks = new CommonCheck[activeChecks.size()];
+    Rule[] rules = new Rule[activeChecks.size()];
+    int index = 0;
+    for (Object check : activeChecks) {
+      checks[index] = (CommonCheck) check;
+      checks[index].activate();
+      rules[index] = ruleOf(checkFactory, check);
+      index++;
+    }
+    return new DispatchTable(checks, rules, statistics);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Rule ruleOf(AnnotationCheckFactory checkFactory, Object check) {
+    // AnnotationCheckFactory extends the raw type CheckFactory
+    return checkFactory.getActiveRule(check).getRule();
+  }
+
+  public boolean isEmpty() {
+    return checks.length == 0;
+  }
+
+  public int size() {
+    return checks.length;
+  }
+
+  public CommonCheck check(int index) {
+    return checks[index];
+  }
+
+  public Rule rule(int index) {
+    return rules[index];
+  }
+
+  /**
+   * Union of the measures read by the checks.
+   */
+  public Set<CheckMetric> metrics() {
+    return metrics;
+  }
+
+  /**
+   * Checks that apply to the main files, or to the unit test files.
+   */
+  public Lane lane(boolean unitTestFile) {
+    return unitTestFile ? unitTestLane : mainLane;
+  }
+
+  /**
+   * Checks of a kind of file, with the measures they read.
+   */
+  public static final class Lane {
+    private final CommonCheck[] checks;
+    private final int[] checkIndexes;
+    private final long[] requiredMetricMasks;
+    private final CheckMetric[] prefetchedMetrics;
+    private final CheckStatistics statistics;
+    private final int[] statisticsSlots;
+
+    private Lane(CommonCheck[] allChecks, boolean unitTestFiles, @Nullable CheckStatistics statistics) {
+      List<Integer> indexes = new ArrayList<Integer>();
+      for (int i = 0; i < allChecks.length; i++) {
+        if (allChecks[i].applicability().accepts(unitTestFiles)) {
+          indexes.add(i);
+        }
+      }
+      this.checks = new CommonCheck[indexes.size()];
+      this.checkIndexes = new int[indexes.size()];
+      for (int i = 0; i < checks.length; i++) {
+        checkIndexes[i] = indexes.get(i);
+        checks[i] = allChecks[checkIndexes[i]];
+      }
+      this.requiredMetricMasks = new long[checks.length];
+      Set<CheckMetric> union = EnumSet.noneOf(CheckMetric.class);
+      for (int i = 0; i < checks.length; i++) {
+        requiredMetricMasks[i] = MeasureSnapshot.maskOf(checks[i].metrics());
+        union.addAll(checks[i].metrics());
+      }
+      this.prefetchedMetrics = MeasureSnapshot.toArray(union);
+      this.statistics = statistics;
+      this.statisticsSlots = new int[checks.length];
+      for (int i = 0; i < checks.length; i++) {
+        statisticsSlots[i] = CheckStatistics.slotOf(checks[i].getClass());
+      }
+    }
+
+    public int size() {
+      return checks.length;
+    }
+
+    /**
+     * @return the index in the {@link DispatchTable} of the check at this index in the lane
+     */
+    public int checkIndex(int index) {
+      return checkIndexes[index];
+    }
+
+    /**
+     * Reads the measures of the resource needed by the checks of this lane. Nothing is read if the lane is empty.
+     */
+    public void load(MeasureSnapshot measures, DecoratorContext context) {
+      measures.load(context, prefetchedMetrics);
+    }
+
+    /**
+     * @return the cost of the violation raised by the check at this index in the lane, or
+     * {@link CommonCheck#NO_VIOLATION}
+     */
+    public double evaluate(int index, MeasureSnapshot measures) {
+      // checks can not raise violations when none of their input measures is available
+      if (!measures.hasAny(requiredMetricMasks[index])) {
+        return CommonCheck.NO_VIOLATION;
+      }
+      if (statistics == null) {
+        return checks[index].evaluate(measures);
+      }
+      long start = System.nanoTime();
+      double cost = checks[index].evaluate(measures);
+      statistics.record(statisticsSlots[index], System.nanoTime() - start, cost);
+      return cost;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.engine;
+
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.ResourceUtils;
+import org.sonar.commonrules.internal.checks.CommonCheck;
+import org.sonar.commonrules.internal.checks.FileDetails;
+import org.sonar.commonrules.internal.checks.MeasureFallback;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Decoration of the files of a module in a language: reads their measures, evaluates the active checks file per file,
+ * saves the violations and updates the statistics of the module.
+ */
+public final class LanguageDecoration {
+
+  private final DispatchTable dispatchTable;
+  private final CheckStatistics statistics;
+  private final MeasureSnapshot measures = new MeasureSnapshot();
+  private final FileDetails.Loader detailsLoader;
+  private final MeasureFallback[] measureFallbacks;
+  private final ViolationLimits limits;
+
+  /**
+   * @param statistics null if evaluations are not counted. Published in JMX until the end of the module.
+   * @param detailsLoader loads the details of the files telling where violations must be fixed
+   * @param measureFallbacks compute the measures of the main files that are not computed by the plugin of the language
+   * @param limits null if the number of violations of the checks is not limited
+   */
+  public LanguageDecoration(DispatchTable dispatchTable, @Nullable CheckStatistics statistics, FileDetails.Loader detailsLoader,
+    List<MeasureFallback> measureFallbacks, @Nullable ViolationLimits limits) {
+    this.dispatchTable = dispatchTable;
+    this.statistics = statistics;
+    this.detailsLoader = detailsLoader.restrictTo(dispatchTable.metrics());
+    this.measureFallbacks = measureFallbacks.toArray(new MeasureFallback[measureFallbacks.size()]);
+    this.limits = limits;
+    if (statistics != null) {
+      statistics.register();
+    }
+  }
+
+  /**
+   * Must be called on each file of the language, on the thread of the decorator. The violations of the file are saved
+   * through its context.
+   */
+  @SuppressWarnings("rawtypes")
+  public void decorateFile(Resource resource, DecoratorContext context) {
+    boolean unitTestFile = ResourceUtils.isUnitTestClass(resource);
+    DispatchTable.Lane lane = dispatchTable.lane(unitTestFile);
+    lane.load(measures, context);
+    if (!unitTestFile && measureFallbacks.length > 0 && resource.getKey() != null) {
+      for (MeasureFallback measureFallback : measureFallbacks) {
+        measureFallback.complete(resource.getKey(), measures);
+      }
+    }
+    boolean loadDetails = detailsLoader.isEnabled();
+    FileDetails details = null;
+    for (int i = 0; i < lane.size(); i++) {
+      double cost = lane.evaluate(i, measures);
+      if (!CommonCheck.isViolation(cost)) {
+        continue;
+      }
+      int checkIndex = lane.checkIndex(i);
+      if (limits == null || limits.accept(checkIndex, cost)) {
+        if (loadDetails) {
+          // details are only needed by the messages of the violations, so files without violations do not read them
+          details = detailsLoader.load(resource, unitTestFile, context);
+          loadDetails = false;
+        }
+        context.saveViolation(dispatchTable.check(checkIndex).createViolation(resource, dispatchTable.rule(checkIndex), cost, details));
+      }
+    }
+  }
+
+  /**
+   * Must be called on the module, which is decorated after all its files. The violations summarizing the violations
+   * that are not saved, see {@link ViolationLimits}, are saved through its context.
+   */
+  public void decorateModule(DecoratorContext context) {
+    if (limits != null) {
+      limits.flush(dispatchTable, context);
+    }
+    if (statistics != null) {
+      statistics.log();
+      statistics.unregister();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.engine;
+
+import org.sonar.api.batch.DecoratorContext;
+
+import javax.annotation.CheckForNull;
+import java.util.Arrays;
+
+/**
+ * Maximum number of violations saved by each check on the files of a module. Violations are saved on their file, in
+ * the order the files are decorated, until the maximum of their check is reached. The other ones are only counted, and
+ * summarized by a single violation on the module with their total cost. Used by a single thread.
+ * <p/>
+ * The saved violations are not the ones with the highest costs: the costs of the next files are unknown when a file is
+ * decorated, and its violations must be saved during its decoration to be tracked by Sonar. They depend on the order
+ * of the files, which is stable as long as the files of the module do not change. When it changes, for example because
+ * a file is added, some files lose their violation and others get one: violation tracking closes the former and opens
+ * the latter, although the files did not change.
+ */
+public final class ViolationLimits {
+
+  // 0 for the checks whose violations are not limited
+  private final int[] maxViolations;
+  private final int[] saved;
+  private final int[] truncated;
+  private final double[] truncatedCosts;
+
+  private ViolationLimits(int[] maxViolations) {
+    this.maxViolations = maxViolations;
+    this.saved = new int[maxViolations.length];
+    this.truncated = new int[maxViolations.length];
+    this.truncatedCosts = new double[maxViolations.length];
+  }
+
+  /**
+   * @param maxViolations maximum number of violations of each check of the {@link DispatchTable}, or 0 if not limited
+   * @return null if no check is limited
+   */
+  @CheckForNull
+  public static ViolationLimits create(int[] maxViolations) {
+    boolean limited = false;
+    for (int max : maxViolations) {
+      if (max < 0) {
+        throw new IllegalArgumentException("The maximum number of violations must be positive or 0: " + max);
+      }
+      limited |= max > 0;
+    }
+    return limited ? new ViolationLimits(maxViolations.clone()) : null;
+  }
+
+  boolean isLimited(int checkIndex) {
+    return maxViolations[checkIndex] > 0;
+  }
+
+  /**
+   * @return whether the violation must be saved on its file. If not, it is counted in the summary of its check.
+   */
+  boolean accept(int checkIndex, double cost) {
+    if (!isLimited(checkIndex) || saved[checkIndex] < maxViolations[checkIndex]) {
+      saved[checkIndex]++;
+      return true;
+    }
+    truncated[checkIndex]++;
+    truncatedCosts[checkIndex] += cost;
+    return false;
+  }
+
+  /**
+   * Saves the violations summarizing the violations that were not saved on the resource of the context, then resets
+   * the counters for the next module.
+   */
+  void flush(DispatchTable dispatchTable, DecoratorContext context) {
+    for (int checkIndex = 0; checkIndex < maxViolations.length; checkIndex++) {
+      if (truncated[checkIndex] > 0) {
+        context.saveViolation(dispatchTable.check(checkIndex).createSummaryViolation(context.getResource(), dispatchTable.rule(checkIndex),
+          truncated[checkIndex], truncatedCosts[checkIndex]));
+      }
+    }
+    Arrays.fill(saved, 0);
+    Arrays.fill(truncated, 0);
+    Arrays.fill(truncatedCosts, 0.0);
+  }
+}
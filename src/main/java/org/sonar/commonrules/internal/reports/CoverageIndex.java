@@ -0,0 +1,146 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureFallback;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Line and branch coverage of the files of a module, as read from its coverage reports. Only four counters are kept
+ * per file, so that the index of a module of millions of lines stays small. Files are indexed by their path, see
+ * {@link FilePathIndex}.
+ */
+public final class CoverageIndex implements MeasureFallback {
+
+  public static final CoverageIndex EMPTY = new CoverageIndex(Collections.<String, FileCoverage>emptyMap());
+
+  private final FilePathIndex<FileCoverage> coverageByFile;
+
+  private CoverageIndex(Map<String, FileCoverage> coverageByFile) {
+    this.coverageByFile = new FilePathIndex<FileCoverage>(coverageByFile);
+  }
+
+  public boolean isEmpty() {
+    return coverageByFile.isEmpty();
+  }
+
+  public int size() {
+    return coverageByFile.size();
+  }
+
+  /**
+   * Sets the line and branch coverage measures of a file that are not available in its snapshot, for example because
+   * the plugin of the language does not import coverage.
+   */
+  public void complete(String resourceKey, MeasureSnapshot measures) {
+    FileCoverage coverage = coverageByFile.get(resourceKey);
+    if (coverage == null) {
+      return;
+    }
+    if (coverage.linesToCover > 0 && !measures.has(CheckMetric.LINE_COVERAGE)) {
+      measures.set(CheckMetric.LINES_TO_COVER, coverage.linesToCover);
+      measures.set(CheckMetric.UNCOVERED_LINES, coverage.uncoveredLines);
+      measures.set(CheckMetric.LINE_COVERAGE, ratio(coverage.linesToCover - coverage.uncoveredLines, coverage.linesToCover));
+    }
+    if (coverage.conditions > 0 && !measures.has(CheckMetric.BRANCH_COVERAGE)) {
+      measures.set(CheckMetric.CONDITIONS_TO_COVER, coverage.conditions);
+      measures.set(CheckMetric.UNCOVERED_CONDITIONS, coverage.conditions - coverage.coveredConditions);
+      measures.set(CheckMetric.BRANCH_COVERAGE, ratio(coverage.coveredConditions, coverage.conditions));
+    }
+  }
+
+  private static double ratio(int covered, int total) {
+    return 100.0 * covered / total;
+  }
+
+  static final class FileCoverage {
+    int linesToCover;
+    int uncoveredLines;
+    int conditions;
+    int coveredConditions;
+
+    void addLine(boolean covered, int lineConditions, int lineCoveredConditions) {
+      linesToCover++;
+      if (!covered) {
+        uncoveredLines++;
+      }
+      conditions += lineConditions;
+      coveredConditions += lineCoveredConditions;
+    }
+
+    /**
+     * A file described by several reports keeps the best coverage, reports are expected to be merged beforehand.
+     */
+    void merge(FileCoverage other) {
+      if (other.linesToCover - other.uncoveredLines > linesToCover - uncoveredLines) {
+        linesToCover = other.linesToCover;
+        uncoveredLines = other.uncoveredLines;
+      }
+      if (other.coveredConditions > coveredConditions) {
+        conditions = other.conditions;
+        coveredConditions = other.coveredConditions;
+      }
+    }
+  }
+
+  static final class Builder {
+    private final Map<String, FileCoverage> coverageByFile = new HashMap<String, FileCoverage>();
+
+    /**
+     * Coverage of a file in the report being read. The lines of a file split in several elements of the same report,
+     * like the classes of a file in Cobertura reports, are added up.
+     *
+     * @param path path of the file, like <code>org/sonar/Foo.java</code>
+     */
+    FileCoverage file(String path) {
+      String key = FilePathIndex.pathKey(path);
+      FileCoverage coverage = coverageByFile.get(key);
+      if (coverage == null) {
+        coverage = new FileCoverage();
+        coverageByFile.put(key, coverage);
+      }
+      return coverage;
+    }
+
+    /**
+     * Merges the index of another report.
+     */
+    Builder addAll(Builder other) {
+      for (Map.Entry<String, FileCoverage> entry : other.coverageByFile.entrySet()) {
+        FileCoverage coverage = coverageByFile.get(entry.getKey());
+        if (coverage == null) {
+          coverageByFile.put(entry.getKey(), entry.getValue());
+        } else {
+          coverage.merge(entry.getValue());
+        }
+      }
+      return this;
+    }
+
+    CoverageIndex build() {
+      return coverageByFile.isEmpty() ? EMPTY : new CoverageIndex(coverageByFile);
+    }
+  }
+}
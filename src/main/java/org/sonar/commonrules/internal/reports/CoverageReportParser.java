@@ -0,0 +1,165 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Reads the coverage by line of a JaCoCo or Cobertura XML report, detected from its root element. The report is
+ * streamed and only the counters of the current file are kept, so memory does not depend on the size of the report.
+ * <ul>
+ *   <li>JaCoCo: <code>&lt;package name="org/sonar"&gt;&lt;sourcefile name="Foo.java"&gt;&lt;line nr="3" mi="0" ci="4"
+ *   mb="1" cb="1"/&gt;</code>. A line is covered if one of its instructions is covered.</li>
+ *   <li>Cobertura: <code>&lt;class filename="org/sonar/Foo.java"&gt;&lt;lines&gt;&lt;line number="3" hits="2"
+ *   branch="true" condition-coverage="50% (1/2)"/&gt;</code>. The lines of the methods, that repeat the lines of the
+ *   class, are ignored.</li>
+ * </ul>
+ */
+final class CoverageReportParser {
+
+  private CoverageReportParser() {
+    // only static methods
+  }
+
+  private static XMLInputFactory newXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    // the DOCTYPE of JaCoCo reports references a DTD that must not be loaded
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  static void parse(InputStream report, CoverageIndex.Builder index) throws XMLStreamException {
+    // one factory per report: factories are not guaranteed to be thread-safe and reports are parsed in parallel
+    XMLStreamReader reader = newXmlInputFactory().createXMLStreamReader(report);
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+          if ("report".equals(reader.getLocalName())) {
+            parseJacoco(reader, index);
+          } else if ("coverage".equals(reader.getLocalName())) {
+            parseCobertura(reader, index);
+          } else {
+            throw new XMLStreamException("Unknown coverage report, the root element is not <report> (JaCoCo) nor <coverage> (Cobertura): "
+              + reader.getLocalName(), reader.getLocation());
+          }
+          return;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static void parseJacoco(XMLStreamReader reader, CoverageIndex.Builder index) throws XMLStreamException {
+    String packagePath = "";
+    CoverageIndex.FileCoverage file = null;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        String element = reader.getLocalName();
+        if ("package".equals(element)) {
+          packagePath = attribute(reader, "name", "");
+        } else if ("sourcefile".equals(element)) {
+          String name = attribute(reader, "name", "");
+          file = index.file(packagePath.length() == 0 ? name : (packagePath + "/" + name));
+        } else if (file != null && "line".equals(element)) {
+          int missedInstructions = intAttribute(reader, "mi");
+          int coveredInstructions = intAttribute(reader, "ci");
+          int missedBranches = intAttribute(reader, "mb");
+          int coveredBranches = intAttribute(reader, "cb");
+          if (missedInstructions + coveredInstructions > 0) {
+            file.addLine(coveredInstructions > 0, missedBranches + coveredBranches, coveredBranches);
+          }
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT && "sourcefile".equals(reader.getLocalName())) {
+        file = null;
+      }
+    }
+  }
+
+  private static void parseCobertura(XMLStreamReader reader, CoverageIndex.Builder index) throws XMLStreamException {
+    CoverageIndex.FileCoverage file = null;
+    boolean inMethod = false;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        String element = reader.getLocalName();
+        if ("class".equals(element)) {
+          String filename = reader.getAttributeValue(null, "filename");
+          file = filename == null ? null : index.file(filename.replace('\\', '/'));
+        } else if ("method".equals(element)) {
+          inMethod = true;
+        } else if (file != null && !inMethod && "line".equals(element)) {
+          addCoberturaLine(file, intAttribute(reader, "hits"), "true".equals(reader.getAttributeValue(null, "branch")),
+            reader.getAttributeValue(null, "condition-coverage"));
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if ("method".equals(reader.getLocalName())) {
+          inMethod = false;
+        } else if ("class".equals(reader.getLocalName())) {
+          file = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * @param conditionCoverage like <code>50% (1/2)</code>
+   */
+  private static void addCoberturaLine(CoverageIndex.FileCoverage file, int hits, boolean branch, @Nullable String conditionCoverage) {
+    int conditions = 0;
+    int coveredConditions = 0;
+    if (branch && conditionCoverage != null) {
+      int open = conditionCoverage.indexOf('(');
+      int slash = conditionCoverage.indexOf('/', open);
+      int close = conditionCoverage.indexOf(')', slash);
+      if (open >= 0 && slash > open && close > slash) {
+        coveredConditions = parseInt(conditionCoverage.substring(open + 1, slash));
+        conditions = parseInt(conditionCoverage.substring(slash + 1, close));
+      }
+    }
+    file.addLine(hits > 0, conditions, Math.min(coveredConditions, conditions));
+  }
+
+  private static String attribute(XMLStreamReader reader, String name, String defaultValue) {
+    String value = reader.getAttributeValue(null, name);
+    return value == null ? defaultValue : value;
+  }
+
+  private static int intAttribute(XMLStreamReader reader, String name) {
+    String value = reader.getAttributeValue(null, name);
+    return value == null ? 0 : parseInt(value);
+  }
+
+  private static int parseInt(String value) {
+    try {
+      return Math.max(0, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
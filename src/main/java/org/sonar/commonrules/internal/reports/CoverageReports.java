@@ -0,0 +1,92 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.commonrules.internal.reports.ReaderPool.FileParser;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the JaCoCo and Cobertura XML reports of a module into a {@link CoverageIndex}. Reports are parsed in parallel,
+ * see {@link ReaderPool}. Reports that can not be read are logged and ignored.
+ */
+public final class CoverageReports {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CoverageReports.class);
+
+  private static final FileParser<CoverageIndex.Builder> PARSER = new FileParser<CoverageIndex.Builder>() {
+    public CoverageIndex.Builder parse(File report) {
+      return CoverageReports.parse(report);
+    }
+  };
+
+  private CoverageReports() {
+    // only static methods
+  }
+
+  /**
+   * @param files report files, missing files are ignored
+   * @param pool parses the reports
+   */
+  public static CoverageIndex read(List<File> files, ReaderPool pool) {
+    List<File> reports = new ArrayList<File>(files.size());
+    for (File file : files) {
+      if (file.isFile()) {
+        reports.add(file);
+      } else {
+        LOG.warn("Coverage report not found: {}", file);
+      }
+    }
+    CoverageIndex.Builder index = new CoverageIndex.Builder();
+    for (CoverageIndex.Builder reportIndex : pool.parseAll(reports, PARSER)) {
+      index.addAll(reportIndex);
+    }
+    CoverageIndex result = index.build();
+    LOG.info("Common rules: {} coverage reports read, {} files covered", reports.size(), result.size());
+    return result;
+  }
+
+  static CoverageIndex.Builder parse(File report) {
+    CoverageIndex.Builder index = new CoverageIndex.Builder();
+    InputStream input = null;
+    try {
+      input = new BufferedInputStream(new FileInputStream(report));
+      CoverageReportParser.parse(input, index);
+      return index;
+    } catch (IOException e) {
+      LOG.warn("Ignoring the coverage report, it can not be read: " + report, e);
+    } catch (XMLStreamException e) {
+      LOG.warn("Ignoring the coverage report, it is not valid: " + report, e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+    return new CoverageIndex.Builder();
+  }
+}
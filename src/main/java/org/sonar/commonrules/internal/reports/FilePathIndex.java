@@ -0,0 +1,103 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import javax.annotation.CheckForNull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Values indexed by the relative path of their file, with the extension, like <code>org/sonar/Foo.java</code>, so
+ * that files differing only by their extension, like <code>foo.c</code> and <code>foo.h</code>, are not mixed up.
+ * <p/>
+ * Resources are looked up by their key. The key of a {@link org.sonar.api.resources.File} is its path and must match
+ * exactly. The key of a {@link org.sonar.api.resources.JavaFile} is the name of its class, like
+ * <code>org.sonar.Foo</code>, which has no extension: it matches the single path of the index having this name without
+ * its extension, and nothing if several paths do, like <code>org/sonar/Foo.java</code> and
+ * <code>org/sonar/Foo.groovy</code>. Not thread-safe: looked up on the thread of the decorator.
+ */
+public final class FilePathIndex<V> {
+
+  private static final String DEFAULT_PACKAGE_PREFIX = "[default].";
+  private static final String AMBIGUOUS = "";
+
+  private final Map<String, V> valuesByPath;
+  // built on the first lookup of a class. AMBIGUOUS if several paths have the same class name.
+  private Map<String, String> pathsByClassName;
+
+  public FilePathIndex(Map<String, V> valuesByPath) {
+    this.valuesByPath = valuesByPath;
+  }
+
+  /**
+   * @param relativePath relative path of a file, with '/' or '\' separators
+   * @return the key of the file in the indexes
+   */
+  public static String pathKey(String relativePath) {
+    return relativePath.replace('\\', '/');
+  }
+
+  /**
+   * @param path path of a file, like <code>org/sonar/Foo.java</code>
+   * @return the name of the class, like <code>org.sonar.Foo</code>
+   */
+  public static String className(String path) {
+    int lastSeparator = path.lastIndexOf('/');
+    int extension = path.lastIndexOf('.');
+    return (extension > lastSeparator ? path.substring(0, extension) : path).replace('/', '.');
+  }
+
+  /**
+   * @param resourceKey key of a file: a path like <code>org/sonar/Foo.java</code>, or the name of a class, like
+   * <code>org.sonar.Foo</code>
+   */
+  @CheckForNull
+  public V get(String resourceKey) {
+    V value = valuesByPath.get(resourceKey);
+    if (value != null || resourceKey.indexOf('/') >= 0) {
+      return value;
+    }
+    String path = pathOfClass(resourceKey.startsWith(DEFAULT_PACKAGE_PREFIX) ? resourceKey.substring(DEFAULT_PACKAGE_PREFIX.length()) : resourceKey);
+    return path == null ? null : valuesByPath.get(path);
+  }
+
+  @CheckForNull
+  private String pathOfClass(String className) {
+    if (pathsByClassName == null) {
+      pathsByClassName = new HashMap<String, String>(valuesByPath.size() * 4 / 3 + 1);
+      for (String path : valuesByPath.keySet()) {
+        String previous = pathsByClassName.put(className(path), path);
+        if (previous != null) {
+          pathsByClassName.put(className(path), AMBIGUOUS);
+        }
+      }
+    }
+    String path = pathsByClassName.get(className);
+    return AMBIGUOUS.equals(path) ? null : path;
+  }
+
+  public boolean isEmpty() {
+    return valuesByPath.isEmpty();
+  }
+
+  public int size() {
+    return valuesByPath.size();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Reads the failed and skipped tests of a JUnit XML report, as written by Surefire or Ant. The report is streamed:
+ * memory does not depend on its size, and the messages, stack traces and outputs of the tests are skipped without
+ * being accumulated.
+ */
+final class JUnitReportParser {
+
+  private JUnitReportParser() {
+    // only static methods
+  }
+
+  private static XMLInputFactory newXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * Adds the failed and skipped tests of the report to the index.
+   */
+  static void parse(InputStream report, UnitTestIndex.Builder index) throws XMLStreamException {
+    // one factory per report: factories are not guaranteed to be thread-safe and reports are parsed in parallel
+    XMLStreamReader reader = newXmlInputFactory().createXMLStreamReader(report);
+    try {
+      String suiteName = null;
+      String className = null;
+      String testName = null;
+      boolean failed = false;
+      boolean skipped = false;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String element = reader.getLocalName();
+          if ("testsuite".equals(element)) {
+            suiteName = reader.getAttributeValue(null, "name");
+          } else if ("testcase".equals(element)) {
+            className = reader.getAttributeValue(null, "classname");
+            if (className == null) {
+              className = suiteName;
+            }
+            testName = reader.getAttributeValue(null, "name");
+            failed = false;
+            skipped = false;
+          } else if (testName != null && ("failure".equals(element) || "error".equals(element))) {
+            failed = true;
+          } else if (testName != null && "skipped".equals(element)) {
+            skipped = true;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && "testcase".equals(reader.getLocalName())) {
+          if (className != null && testName != null) {
+            if (failed) {
+              index.testClass(className).addFailedTest(testName);
+            } else if (skipped) {
+              index.testClass(className).addSkippedTest(testName);
+            }
+          }
+          testName = null;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads reading the files of a module, like reports or sources, one task per file. Results are returned in the order
+ * of the files, so that the indexes merged from them do not depend on the scheduling of the tasks. Checks are never
+ * evaluated by this pool, they are evaluated by the batch thread.
+ */
+public final class ReaderPool {
+
+  public interface FileParser<T> {
+    /**
+     * Called by the threads of the pool. Files that can not be read are expected to be logged and ignored.
+     */
+    T parse(File file);
+  }
+
+  private final int parallelism;
+
+  /**
+   * @param parallelism maximum number of threads. Files are read by the calling thread if it's 1.
+   */
+  public ReaderPool(int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Threads are started by each call and stopped before it returns.
+   */
+  public <T> List<T> parseAll(List<File> files, final FileParser<T> parser) {
+    List<T> results = new ArrayList<T>(files.size());
+    if (parallelism == 1 || files.size() <= 1) {
+      for (File file : files) {
+        results.add(parser.parse(file));
+      }
+      return results;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, files.size()), new DaemonThreadFactory());
+    try {
+      List<Future<T>> futures = new ArrayList<Future<T>>(files.size());
+      for (final File file : files) {
+        futures.add(executor.submit(new Callable<T>() {
+          public T call() {
+            return parser.parse(file);
+          }
+        }));
+      }
+      for (Future<T> future : futures) {
+        results.add(get(future));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static <T> T get(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading files", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to read files", e.getCause());
+    }
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "common-rules-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Names of the failed (including errors) and skipped tests of a test class. Successful tests are not kept.
+ */
+public final class TestClassResults {
+
+  private static final String[] NONE = new String[0];
+
+  private final String[] failedTests;
+  private final String[] skippedTests;
+
+  private TestClassResults(String[] failedTests, String[] skippedTests) {
+    this.failedTests = failedTests;
+    this.skippedTests = skippedTests;
+  }
+
+  public List<String> failedTests() {
+    return Collections.unmodifiableList(Arrays.asList(failedTests));
+  }
+
+  public List<String> skippedTests() {
+    return Collections.unmodifiableList(Arrays.asList(skippedTests));
+  }
+
+  static final class Builder {
+    private final Set<String> failedTests = new LinkedHashSet<String>();
+    private final Set<String> skippedTests = new LinkedHashSet<String>();
+
+    Builder addFailedTest(String name) {
+      failedTests.add(name);
+      return this;
+    }
+
+    Builder addSkippedTest(String name) {
+      skippedTests.add(name);
+      return this;
+    }
+
+    Builder addAll(Builder other) {
+      failedTests.addAll(other.failedTests);
+      skippedTests.addAll(other.skippedTests);
+      return this;
+    }
+
+    TestClassResults build() {
+      return new TestClassResults(toArray(failedTests), toArray(skippedTests));
+    }
+
+    private static String[] toArray(Set<String> names) {
+      return names.isEmpty() ? NONE : names.toArray(new String[names.size()]);
+    }
+  }
+}
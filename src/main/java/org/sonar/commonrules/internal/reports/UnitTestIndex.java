@@ -0,0 +1,130 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.sonar.api.resources.InputFile;
+
+import javax.annotation.CheckForNull;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Failed and skipped tests of a module by test class, as read from its unit test reports. Classes whose tests all
+ * succeeded are not indexed.
+ * <p/>
+ * Reports only give the names of the classes. A test file whose key is a path, like <code>org/sonar/FooTest.js</code>,
+ * matches the class having its name without extension, <code>org.sonar.FooTest</code>, unless another test file has
+ * the same name without extension, see {@link #withTestFiles(List)}.
+ */
+public final class UnitTestIndex {
+
+  private static final String DEFAULT_PACKAGE_PREFIX = "[default].";
+
+  public static final UnitTestIndex EMPTY = new UnitTestIndex(Collections.<String, TestClassResults>emptyMap(), Collections.<String>emptySet());
+
+  private final Map<String, TestClassResults> resultsByClass;
+  // classes of several test files
+  private final Set<String> ambiguousClasses;
+
+  private UnitTestIndex(Map<String, TestClassResults> resultsByClass, Set<String> ambiguousClasses) {
+    this.resultsByClass = resultsByClass;
+    this.ambiguousClasses = ambiguousClasses;
+  }
+
+  /**
+   * @param testFiles test files of the module, whose paths without extension must be unique to match a class
+   */
+  public UnitTestIndex withTestFiles(List<InputFile> testFiles) {
+    if (resultsByClass.isEmpty()) {
+      return this;
+    }
+    Set<String> classes = new HashSet<String>();
+    Set<String> ambiguous = new HashSet<String>();
+    for (InputFile testFile : testFiles) {
+      String className = FilePathIndex.className(FilePathIndex.pathKey(testFile.getRelativePath()));
+      if (resultsByClass.containsKey(className) && !classes.add(className)) {
+        ambiguous.add(className);
+      }
+    }
+    return new UnitTestIndex(resultsByClass, ambiguous);
+  }
+
+  public boolean isEmpty() {
+    return resultsByClass.isEmpty();
+  }
+
+  public int size() {
+    return resultsByClass.size();
+  }
+
+  /**
+   * @param resourceKey key of a unit test file: the name of a class, like <code>org.sonar.FooTest</code>, or a path
+   * like <code>org/sonar/FooTest.java</code>
+   * @return null if all the tests of the class succeeded or if it has no report
+   */
+  @CheckForNull
+  public TestClassResults get(String resourceKey) {
+    if (resourceKey.indexOf('/') < 0) {
+      return resultsByClass.get(resourceKey.startsWith(DEFAULT_PACKAGE_PREFIX) ? resourceKey.substring(DEFAULT_PACKAGE_PREFIX.length()) : resourceKey);
+    }
+    String className = FilePathIndex.className(resourceKey);
+    return ambiguousClasses.contains(className) ? null : resultsByClass.get(className);
+  }
+
+  static final class Builder {
+    private final Map<String, TestClassResults.Builder> builders = new HashMap<String, TestClassResults.Builder>();
+
+    /**
+     * @param className name of the class, nested classes are indexed with their top-level class
+     */
+    TestClassResults.Builder testClass(String className) {
+      int nested = className.indexOf('$');
+      String topLevelClassName = nested > 0 ? className.substring(0, nested) : className;
+      TestClassResults.Builder builder = builders.get(topLevelClassName);
+      if (builder == null) {
+        builder = new TestClassResults.Builder();
+        builders.put(topLevelClassName, builder);
+      }
+      return builder;
+    }
+
+    Builder addAll(Builder other) {
+      for (Map.Entry<String, TestClassResults.Builder> entry : other.builders.entrySet()) {
+        testClass(entry.getKey()).addAll(entry.getValue());
+      }
+      return this;
+    }
+
+    UnitTestIndex build() {
+      if (builders.isEmpty()) {
+        return EMPTY;
+      }
+      Map<String, TestClassResults> resultsByClass = new HashMap<String, TestClassResults>(builders.size() * 4 / 3 + 1);
+      for (Map.Entry<String, TestClassResults.Builder> entry : builders.entrySet()) {
+        resultsByClass.put(entry.getKey(), entry.getValue().build());
+      }
+      return new UnitTestIndex(resultsByClass, Collections.<String>emptySet());
+    }
+  }
+}
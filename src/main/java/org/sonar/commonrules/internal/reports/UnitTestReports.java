@@ -0,0 +1,102 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.commonrules.internal.reports.ReaderPool.FileParser;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the JUnit XML reports <code>TEST-*.xml</code> of a module into a {@link UnitTestIndex}. Reports are parsed in
+ * parallel, see {@link ReaderPool}. Reports that can not be read are logged and ignored.
+ */
+public final class UnitTestReports {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UnitTestReports.class);
+
+  private static final FileFilter REPORT_FILTER = new FileFilter() {
+    public boolean accept(File file) {
+      return file.isFile() && file.getName().startsWith("TEST-") && file.getName().endsWith(".xml");
+    }
+  };
+
+  private static final FileParser<UnitTestIndex.Builder> PARSER = new FileParser<UnitTestIndex.Builder>() {
+    public UnitTestIndex.Builder parse(File report) {
+      return UnitTestReports.parse(report);
+    }
+  };
+
+  private UnitTestReports() {
+    // only static methods
+  }
+
+  /**
+   * @param directories directories containing the reports, missing directories are ignored
+   * @param pool parses the reports
+   */
+  public static UnitTestIndex read(List<File> directories, ReaderPool pool) {
+    List<File> reports = new ArrayList<File>();
+    for (File directory : directories) {
+      File[] files = directory.listFiles(REPORT_FILTER);
+      if (files == null) {
+        LOG.warn("Directory of unit test reports not found: {}", directory);
+      } else {
+        Arrays.sort(files);
+        reports.addAll(Arrays.asList(files));
+      }
+    }
+    UnitTestIndex.Builder index = new UnitTestIndex.Builder();
+    for (UnitTestIndex.Builder reportIndex : pool.parseAll(reports, PARSER)) {
+      index.addAll(reportIndex);
+    }
+    UnitTestIndex result = index.build();
+    LOG.info("Common rules: {} unit test reports read, {} test classes with failed or skipped tests", reports.size(), result.size());
+    return result;
+  }
+
+  static UnitTestIndex.Builder parse(File report) {
+    UnitTestIndex.Builder index = new UnitTestIndex.Builder();
+    InputStream input = null;
+    try {
+      input = new BufferedInputStream(new FileInputStream(report));
+      JUnitReportParser.parse(input, index);
+      return index;
+    } catch (IOException e) {
+      LOG.warn("Ignoring the unit test report, it can not be read: " + report, e);
+    } catch (XMLStreamException e) {
+      LOG.warn("Ignoring the unit test report, it is not valid: " + report, e);
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+    return new UnitTestIndex.Builder();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.InputFile;
+import org.sonar.commonrules.internal.reports.FilePathIndex;
+import org.sonar.commonrules.internal.reports.ReaderPool;
+import org.sonar.commonrules.internal.reports.ReaderPool.FileParser;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the lines of code and the comment lines of source files, for the languages whose plugin does not compute
+ * them. Files are scanned in parallel by a {@link ReaderPool}, as bytes: they are never decoded to strings, see
+ * {@link SourceBuffers}.
+ */
+public final class CommentLineScanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CommentLineScanner.class);
+
+  private CommentLineScanner() {
+    // only static methods
+  }
+
+  /**
+   * @param files main files of a language
+   * @param charset encoding of the files, see {@link SourceBuffers#isCompatible(Charset)}
+   * @param pool scans the files
+   */
+  public static CommentLinesIndex scan(List<InputFile> files, final CommentSyntax syntax, Charset charset, ReaderPool pool) {
+    if (!SourceBuffers.isCompatible(charset)) {
+      LOG.warn("Comment lines of {} files can not be counted by common rules", charset);
+      return CommentLinesIndex.EMPTY;
+    }
+    List<File> sources = new ArrayList<File>(files.size());
+    for (InputFile file : files) {
+      sources.add(file.getFile());
+    }
+    List<int[]> lines = pool.parseAll(sources, new FileParser<int[]>() {
+      public int[] parse(File file) {
+        return scan(file, syntax);
+      }
+    });
+    Map<String, int[]> linesByFile = new HashMap<String, int[]>(files.size() * 4 / 3 + 1);
+    for (int i = 0; i < files.size(); i++) {
+      if (lines.get(i) != null) {
+        linesByFile.put(FilePathIndex.pathKey(files.get(i).getRelativePath()), lines.get(i));
+      }
+    }
+    LOG.info("Common rules: comment lines of {} files counted", linesByFile.size());
+    return linesByFile.isEmpty() ? CommentLinesIndex.EMPTY : new CommentLinesIndex(linesByFile);
+  }
+
+  /**
+   * @return the lines of code and the comment lines, or null if the file can not be read
+   */
+  @CheckForNull
+  static int[] scan(File file, final CommentSyntax syntax) {
+    return SourceBuffers.read(file, new SourceBuffers.Visitor<int[]>() {
+      public int[] visit(ByteBuffer source) {
+        LineCounter counter = new LineCounter(syntax).scan(source);
+        return new int[] {counter.linesOfCode(), counter.commentLines()};
+      }
+    });
+  }
+}
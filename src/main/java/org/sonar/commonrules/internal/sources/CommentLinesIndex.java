@@ -0,0 +1,78 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureFallback;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+import org.sonar.commonrules.internal.reports.FilePathIndex;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Lines of code and comment lines of the main files of a module, as counted by {@link CommentLineScanner}. Files are
+ * indexed by their path, see {@link FilePathIndex}.
+ */
+public final class CommentLinesIndex implements MeasureFallback {
+
+  public static final CommentLinesIndex EMPTY = new CommentLinesIndex(Collections.<String, int[]>emptyMap());
+
+  // lines of code and comment lines by file
+  private final FilePathIndex<int[]> linesByFile;
+
+  CommentLinesIndex(Map<String, int[]> linesByFile) {
+    this.linesByFile = new FilePathIndex<int[]>(linesByFile);
+  }
+
+  public boolean isEmpty() {
+    return linesByFile.isEmpty();
+  }
+
+  public int size() {
+    return linesByFile.size();
+  }
+
+  /**
+   * Sets the comment measures of a file if its snapshot has no comment density, for example because the plugin of the
+   * language does not compute it. The lines of code and the comment lines computed by the plugin are kept. The density
+   * is computed from the scanned lines as by Sonar: comment lines / (lines of code + comment lines).
+   */
+  public void complete(String resourceKey, MeasureSnapshot measures) {
+    if (measures.has(CheckMetric.COMMENT_LINES_DENSITY)) {
+      return;
+    }
+    int[] lines = linesByFile.get(resourceKey);
+    if (lines == null) {
+      return;
+    }
+    int linesOfCode = lines[0];
+    int commentLines = lines[1];
+    if (!measures.has(CheckMetric.NCLOC)) {
+      measures.set(CheckMetric.NCLOC, linesOfCode);
+    }
+    if (!measures.has(CheckMetric.COMMENT_LINES)) {
+      measures.set(CheckMetric.COMMENT_LINES, commentLines);
+    }
+    if (linesOfCode + commentLines > 0) {
+      measures.set(CheckMetric.COMMENT_LINES_DENSITY, 100.0 * commentLines / (linesOfCode + commentLines));
+    }
+  }
+}
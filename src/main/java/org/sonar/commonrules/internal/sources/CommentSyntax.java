@@ -0,0 +1,108 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import java.nio.charset.Charset;
+
+/**
+ * Comment and string delimiters of a language, as bytes. Delimiters are ASCII, so that sources encoded with an
+ * {@link SourceBuffers#isCompatible ASCII-compatible} charset, like UTF-8 or ISO-8859-1, are scanned without being
+ * decoded.
+ */
+public final class CommentSyntax {
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  final byte[][] lineComments;
+  final byte[][] blockCommentStarts;
+  final byte[][] blockCommentEnds;
+  final boolean[] stringDelimiters = new boolean[256];
+  // first bytes of the delimiters, the others bytes of the code do not need to be compared to the delimiters
+  final boolean[] firstBytes = new boolean[256];
+
+  private CommentSyntax(byte[][] lineComments, byte[][] blockCommentStarts, byte[][] blockCommentEnds, byte[] stringDelimiters) {
+    this.lineComments = lineComments;
+    this.blockCommentStarts = blockCommentStarts;
+    this.blockCommentEnds = blockCommentEnds;
+    for (byte delimiter : stringDelimiters) {
+      this.stringDelimiters[delimiter & 0xFF] = true;
+    }
+    for (byte[] delimiter : lineComments) {
+      firstBytes[delimiter[0] & 0xFF] = true;
+    }
+    for (byte[] delimiter : blockCommentStarts) {
+      firstBytes[delimiter[0] & 0xFF] = true;
+    }
+  }
+
+  /**
+   * Strings are delimited by double quotes.
+   *
+   * @see #create(String[], String[], String[])
+   */
+  public static CommentSyntax create(String[] lineComments, String[] blockComments) {
+    return create(lineComments, blockComments, new String[] {"\""});
+  }
+
+  /**
+   * @param lineComments starts of line comments, like <code>//</code> or <code>#</code>
+   * @param blockComments start and end of block comments separated by a space, like <code>/* *&#47;</code>
+   * @param stringDelimiters characters starting and ending strings, like <code>"</code>. Unless it delimits strings, a
+   * single quote only delimits character literals, like <code>'a'</code> or <code>'\n'</code>.
+   * @throws IllegalArgumentException if a delimiter is empty or not ASCII, if a block comment has no end, or if a string
+   * delimiter is not a single character
+   */
+  public static CommentSyntax create(String[] lineComments, String[] blockComments, String[] stringDelimiters) {
+    byte[][] lines = new byte[lineComments.length][];
+    for (int i = 0; i < lineComments.length; i++) {
+      lines[i] = toBytes(lineComments[i].trim());
+    }
+    byte[][] starts = new byte[blockComments.length][];
+    byte[][] ends = new byte[blockComments.length][];
+    for (int i = 0; i < blockComments.length; i++) {
+      String[] startAndEnd = blockComments[i].trim().split("\\s+");
+      if (startAndEnd.length != 2) {
+        throw new IllegalArgumentException("Block comments must be defined by a start and an end separated by a space: '" + blockComments[i] + "'");
+      }
+      starts[i] = toBytes(startAndEnd[0]);
+      ends[i] = toBytes(startAndEnd[1]);
+    }
+    byte[] strings = new byte[stringDelimiters.length];
+    for (int i = 0; i < stringDelimiters.length; i++) {
+      byte[] delimiter = toBytes(stringDelimiters[i].trim());
+      if (delimiter.length != 1) {
+        throw new IllegalArgumentException("String delimiters must be single characters: '" + stringDelimiters[i] + "'");
+      }
+      strings[i] = delimiter[0];
+    }
+    return new CommentSyntax(lines, starts, ends, strings);
+  }
+
+  private static byte[] toBytes(String delimiter) {
+    if (delimiter.length() == 0 || !ASCII.newEncoder().canEncode(delimiter)) {
+      throw new IllegalArgumentException("Comment delimiters must be ASCII and not empty: '" + delimiter + "'");
+    }
+    return delimiter.getBytes(ASCII);
+  }
+
+  public boolean isEmpty() {
+    return lineComments.length == 0 && blockCommentStarts.length == 0;
+  }
+}
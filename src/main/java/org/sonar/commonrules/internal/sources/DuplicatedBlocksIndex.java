@@ -0,0 +1,65 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureFallback;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+import org.sonar.commonrules.internal.reports.FilePathIndex;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Number of duplicated blocks of the main files of a module, as detected by {@link DuplicationDetector}. Only the
+ * files having duplicated blocks are indexed, by their path, see {@link FilePathIndex}.
+ */
+public final class DuplicatedBlocksIndex implements MeasureFallback {
+
+  public static final DuplicatedBlocksIndex EMPTY = new DuplicatedBlocksIndex(Collections.<String, Integer>emptyMap());
+
+  private final FilePathIndex<Integer> blocksByFile;
+
+  DuplicatedBlocksIndex(Map<String, Integer> blocksByFile) {
+    this.blocksByFile = new FilePathIndex<Integer>(blocksByFile);
+  }
+
+  public boolean isEmpty() {
+    return blocksByFile.isEmpty();
+  }
+
+  public int size() {
+    return blocksByFile.size();
+  }
+
+  /**
+   * Sets the number of duplicated blocks of a file if it's not available in its snapshot, for example because the
+   * plugin of the language does not detect duplications.
+   */
+  public void complete(String resourceKey, MeasureSnapshot measures) {
+    if (measures.has(CheckMetric.DUPLICATED_BLOCKS)) {
+      return;
+    }
+    Integer blocks = blocksByFile.get(resourceKey);
+    if (blocks != null) {
+      measures.set(CheckMetric.DUPLICATED_BLOCKS, blocks);
+    }
+  }
+}
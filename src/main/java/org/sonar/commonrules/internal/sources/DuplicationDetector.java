@@ -0,0 +1,137 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.InputFile;
+import org.sonar.commonrules.internal.reports.FilePathIndex;
+import org.sonar.commonrules.internal.reports.ReaderPool;
+import org.sonar.commonrules.internal.reports.ReaderPool.FileParser;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects the blocks of lines duplicated in the main files of a module, for the languages whose plugin does not
+ * detect duplications. Any language is supported: a block is a sequence of at least {@code minimumLines} significant
+ * lines, see {@link WindowHashes}, that is found at least twice in the module, in the same file or in several files.
+ * <p/>
+ * Files are hashed in parallel by a {@link ReaderPool}, then the hashes of all the windows are counted in a
+ * {@link LongIntTable}. The windows found twice or more are duplicated, and the consecutive duplicated windows of a
+ * file are a single block. Windows are compared by their 64-bit hashes only, collisions are ignored.
+ */
+public final class DuplicationDetector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DuplicationDetector.class);
+
+  private DuplicationDetector() {
+    // only static methods
+  }
+
+  /**
+   * @param files main files of a language
+   * @param minimumLines number of significant lines of the smallest duplicated blocks
+   * @param charset encoding of the files, see {@link SourceBuffers#isCompatible(Charset)}
+   * @param pool hashes the files
+   * @throws IllegalStateException if the module has too many windows to index, see {@link LongIntTable#MAX_CAPACITY}
+   */
+  public static DuplicatedBlocksIndex detect(List<InputFile> files, final int minimumLines, Charset charset, ReaderPool pool) {
+    if (minimumLines < 1) {
+      throw new IllegalArgumentException("The minimum number of lines of duplicated blocks must be positive: " + minimumLines);
+    }
+    if (!SourceBuffers.isCompatible(charset)) {
+      LOG.warn("Duplications of {} files can not be detected by common rules", charset);
+      return DuplicatedBlocksIndex.EMPTY;
+    }
+    List<File> sources = new ArrayList<File>(files.size());
+    List<String> paths = new ArrayList<String>(files.size());
+    for (InputFile file : files) {
+      sources.add(file.getFile());
+      paths.add(FilePathIndex.pathKey(file.getRelativePath()));
+    }
+    List<long[]> windows = pool.parseAll(sources, new FileParser<long[]>() {
+      public long[] parse(File file) {
+        return hash(file, minimumLines);
+      }
+    });
+    return countBlocks(paths, windows, minimumLines);
+  }
+
+  /**
+   * @param paths keys of the files, see {@link FilePathIndex#pathKey(String)}
+   * @param windows hashes of the windows of each file, null if the file can not be read
+   */
+  static DuplicatedBlocksIndex countBlocks(List<String> paths, List<long[]> windows, int minimumLines) {
+    long windowCount = 0;
+    for (long[] fileWindows : windows) {
+      windowCount += fileWindows == null ? 0 : fileWindows.length;
+    }
+    LongIntTable occurrences = new LongIntTable((int) Math.min(windowCount, Integer.MAX_VALUE));
+    for (long[] fileWindows : windows) {
+      if (fileWindows != null) {
+        for (long window : fileWindows) {
+          occurrences.add(window, 1);
+        }
+      }
+    }
+
+    Map<String, Integer> blocksByFile = new HashMap<String, Integer>();
+    for (int i = 0; i < paths.size(); i++) {
+      int blocks = windows.get(i) == null ? 0 : countBlocks(windows.get(i), occurrences);
+      if (blocks > 0) {
+        blocksByFile.put(paths.get(i), blocks);
+      }
+    }
+    LOG.info("Common rules: {} windows of {} lines indexed, {} files with duplicated blocks", new Object[] {windowCount, minimumLines, blocksByFile.size()});
+    return blocksByFile.isEmpty() ? DuplicatedBlocksIndex.EMPTY : new DuplicatedBlocksIndex(blocksByFile);
+  }
+
+  /**
+   * @return the hashes of the windows of the file, or null if the file can not be read
+   */
+  @CheckForNull
+  static long[] hash(File file, final int minimumLines) {
+    return SourceBuffers.read(file, new SourceBuffers.Visitor<long[]>() {
+      public long[] visit(ByteBuffer source) {
+        return WindowHashes.of(source, minimumLines);
+      }
+    });
+  }
+
+  static int countBlocks(long[] windows, LongIntTable occurrences) {
+    int blocks = 0;
+    boolean inBlock = false;
+    for (long window : windows) {
+      boolean duplicated = occurrences.get(window) > 1;
+      if (duplicated && !inBlock) {
+        blocks++;
+      }
+      inBlock = duplicated;
+    }
+    return blocks;
+  }
+}
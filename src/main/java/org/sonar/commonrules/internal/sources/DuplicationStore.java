@@ -0,0 +1,237 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.resources.InputFile;
+import org.sonar.commonrules.internal.reports.FilePathIndex;
+import org.sonar.commonrules.internal.reports.ReaderPool;
+import org.sonar.commonrules.internal.reports.ReaderPool.FileParser;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental version of {@link DuplicationDetector}: the window hashes of the main files are kept in a local file
+ * between the analyses of a module, so that only the files modified since the previous analysis are read and hashed
+ * again. A file is unchanged if its size and its last modification time are unchanged. The hashes of the modified and
+ * deleted files are dropped, and the duplicated blocks of all the files are counted again from the hashes.
+ * <p/>
+ * The file contains a header, with the minimum number of lines of the windows, and the table of the indexed files,
+ * with their path, their size, their last modification time and the hashes of their windows. It's read as a stream,
+ * and written to a temporary file renamed at the end, so that an interrupted analysis does not corrupt it.
+ */
+public final class DuplicationStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DuplicationStore.class);
+  private static final int MAGIC = 0x43524450;
+  private static final int FORMAT_VERSION = 1;
+
+  private final File file;
+  private final int minimumLines;
+  private final Map<String, IndexedFile> indexedFiles;
+
+  private DuplicationStore(File file, int minimumLines, Map<String, IndexedFile> indexedFiles) {
+    this.file = file;
+    this.minimumLines = minimumLines;
+    this.indexedFiles = indexedFiles;
+  }
+
+  /**
+   * Reads the index of the previous analysis. It's ignored if it does not exist, if it can not be read or if it was
+   * computed with another minimum number of lines.
+   */
+  public static DuplicationStore load(File file, int minimumLines) {
+    Map<String, IndexedFile> indexedFiles = Collections.emptyMap();
+    if (file.isFile()) {
+      try {
+        indexedFiles = read(file, minimumLines);
+      } catch (IOException e) {
+        LOG.warn("Ignoring the duplication index of common rules, it can not be read: " + file, e);
+      }
+    }
+    return new DuplicationStore(file, minimumLines, indexedFiles);
+  }
+
+  private static Map<String, IndexedFile> read(File file, int minimumLines) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    try {
+      if (input.readInt() != MAGIC) {
+        throw new IOException("Unknown format of duplication index");
+      }
+      if (input.readInt() != FORMAT_VERSION || input.readInt() != minimumLines) {
+        LOG.info("Duplication settings or format changed since the previous analysis, the duplication index is ignored");
+        return Collections.emptyMap();
+      }
+      int fileCount = input.readInt();
+      Map<String, IndexedFile> indexedFiles = new HashMap<String, IndexedFile>();
+      for (int i = 0; i < fileCount; i++) {
+        String path = input.readUTF();
+        long size = input.readLong();
+        long lastModified = input.readLong();
+        int windowCount = input.readInt();
+        if (windowCount < 0 || windowCount > file.length() / 8) {
+          throw new IOException("Corrupted duplication index");
+        }
+        long[] windows = new long[windowCount];
+        for (int j = 0; j < windowCount; j++) {
+          windows[j] = input.readLong();
+        }
+        if (indexedFiles.put(path, new IndexedFile(size, lastModified, windows)) != null) {
+          throw new IOException("Duplicated file in duplication index: " + path);
+        }
+      }
+      return indexedFiles;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  int indexedFiles() {
+    return indexedFiles.size();
+  }
+
+  /**
+   * Hashes the new and modified files, counts the duplicated blocks of all the files and writes the index. Several
+   * source directories can contain files of the same path: only the first one is indexed.
+   *
+   * @param mainFiles main files of a language
+   * @param charset encoding of the files, see {@link SourceBuffers#isCompatible(Charset)}
+   * @param pool hashes the new and modified files
+   */
+  public DuplicatedBlocksIndex update(List<InputFile> mainFiles, Charset charset, ReaderPool pool) {
+    if (!SourceBuffers.isCompatible(charset)) {
+      LOG.warn("Duplications of {} files can not be detected by common rules", charset);
+      return DuplicatedBlocksIndex.EMPTY;
+    }
+    List<String> paths = new ArrayList<String>(mainFiles.size());
+    List<IndexedFile> files = new ArrayList<IndexedFile>(mainFiles.size());
+    List<File> modifiedSources = new ArrayList<File>();
+    List<Integer> modified = new ArrayList<Integer>();
+    Set<String> seenPaths = new HashSet<String>();
+    for (InputFile mainFile : mainFiles) {
+      String path = FilePathIndex.pathKey(mainFile.getRelativePath());
+      File source = mainFile.getFile();
+      if (!seenPaths.add(path)) {
+        LOG.warn("Duplications of {} are not detected by common rules, another file has the same path", source);
+        continue;
+      }
+      IndexedFile indexed = indexedFiles.get(path);
+      IndexedFile current = new IndexedFile(source.length(), source.lastModified(), null);
+      if (indexed != null && indexed.size == current.size && indexed.lastModified == current.lastModified) {
+        current = indexed;
+      } else {
+        modifiedSources.add(source);
+        modified.add(files.size());
+      }
+      paths.add(path);
+      files.add(current);
+    }
+
+    List<long[]> modifiedWindows = pool.parseAll(modifiedSources, new FileParser<long[]>() {
+      public long[] parse(File source) {
+        return DuplicationDetector.hash(source, minimumLines);
+      }
+    });
+    for (int i = 0; i < modified.size(); i++) {
+      IndexedFile stamp = files.get(modified.get(i));
+      files.set(modified.get(i), new IndexedFile(stamp.size, stamp.lastModified, modifiedWindows.get(i)));
+    }
+    List<long[]> windows = new ArrayList<long[]>(files.size());
+    for (IndexedFile indexed : files) {
+      windows.add(indexed.windows);
+    }
+    LOG.info("Common rules: {} of {} files hashed for duplications", modified.size(), paths.size());
+
+    try {
+      save(paths, files);
+    } catch (IOException e) {
+      LOG.warn("The duplication index of common rules can not be written: " + file, e);
+    }
+    return DuplicationDetector.countBlocks(paths, windows, minimumLines);
+  }
+
+  /**
+   * Files that can not be read are not saved, so that they are read again by the next analysis.
+   */
+  private void save(List<String> paths, List<IndexedFile> files) throws IOException {
+    int fileCount = 0;
+    for (IndexedFile indexed : files) {
+      fileCount += indexed.windows == null ? 0 : 1;
+    }
+    File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    try {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(minimumLines);
+      output.writeInt(fileCount);
+      for (int i = 0; i < paths.size(); i++) {
+        IndexedFile indexed = files.get(i);
+        if (indexed.windows != null) {
+          output.writeUTF(paths.get(i));
+          output.writeLong(indexed.size);
+          output.writeLong(indexed.lastModified);
+          output.writeInt(indexed.windows.length);
+          for (long window : indexed.windows) {
+            output.writeLong(window);
+          }
+        }
+      }
+      output.close();
+    } finally {
+      IOUtils.closeQuietly(output);
+    }
+    // File.renameTo does not replace an existing file on Windows
+    if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+      throw new IOException("Unable to rename " + temp + " to " + file);
+    }
+  }
+
+  private static final class IndexedFile {
+    private final long size;
+    private final long lastModified;
+    // null if the file is not hashed yet or can not be read
+    private final long[] windows;
+
+    IndexedFile(long size, long lastModified, @Nullable long[] windows) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.windows = windows;
+    }
+  }
+}
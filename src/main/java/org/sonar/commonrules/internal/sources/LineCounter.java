@@ -0,0 +1,218 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counts the lines of code and the comment lines of a source file, byte per byte, without decoding it. A line of code
+ * has at least one character that is neither a blank nor part of a comment. A comment line has a comment containing
+ * a letter or a digit, so that the lines made of delimiters or decorations like <code>/*</code> and <code> *</code>
+ * are not counted. A line can be both. Strings on a single line, delimited by the string delimiters of the
+ * {@link CommentSyntax}, and character literals like <code>'a'</code> are code, so that delimiters in strings do not
+ * start comments. Other single quotes, like the apostrophes of Rust lifetimes or of Lisp, are code that does not start
+ * strings.
+ */
+final class LineCounter {
+
+  private static final int CODE = 0;
+  private static final int STRING = 1;
+  private static final int LINE_COMMENT = 2;
+  private static final int BLOCK_COMMENT = 3;
+  // longest escaped character literal, a quote, a backslash, u{, 6 hexadecimal digits, } and a quote
+  private static final int MAX_ESCAPED_CHAR_LENGTH = 12;
+
+  private final CommentSyntax syntax;
+  private int state = CODE;
+  private byte quote;
+  private int blockComment;
+  private boolean lineHasCode = false;
+  private boolean lineHasComment = false;
+  private boolean lineIsEmpty = true;
+  private int linesOfCode = 0;
+  private int commentLines = 0;
+
+  LineCounter(CommentSyntax syntax) {
+    this.syntax = syntax;
+  }
+
+  /**
+   * Scans the bytes between the position and the limit of the buffer, that are expected to be a whole file.
+   */
+  LineCounter scan(ByteBuffer buffer) {
+    int limit = buffer.limit();
+    int i = buffer.position();
+    while (i < limit) {
+      byte b = buffer.get(i);
+      if (b == '\n' || b == '\r') {
+        endLine();
+        i += b == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n' ? 2 : 1;
+        continue;
+      }
+      lineIsEmpty = false;
+      if (state == CODE) {
+        i = scanCode(buffer, i, limit, b);
+      } else if (state == STRING) {
+        if (b == '\\') {
+          // escaped character, unless it's a line break
+          i++;
+          if (i < limit && buffer.get(i) != '\n' && buffer.get(i) != '\r') {
+            i++;
+          }
+        } else {
+          if (b == quote) {
+            state = CODE;
+          }
+          i++;
+        }
+      } else if (state == BLOCK_COMMENT) {
+        byte[] end = syntax.blockCommentEnds[blockComment];
+        if (matches(buffer, i, limit, end)) {
+          state = CODE;
+          i += end.length;
+        } else {
+          markComment(b);
+          i++;
+        }
+      } else {
+        markComment(b);
+        i++;
+      }
+    }
+    if (!lineIsEmpty) {
+      endLine();
+    }
+    return this;
+  }
+
+  private int scanCode(ByteBuffer buffer, int i, int limit, byte b) {
+    if (syntax.firstBytes[b & 0xFF]) {
+      for (byte[] delimiter : syntax.lineComments) {
+        if (matches(buffer, i, limit, delimiter)) {
+          state = LINE_COMMENT;
+          return i + delimiter.length;
+        }
+      }
+      for (int j = 0; j < syntax.blockCommentStarts.length; j++) {
+        byte[] delimiter = syntax.blockCommentStarts[j];
+        if (matches(buffer, i, limit, delimiter)) {
+          state = BLOCK_COMMENT;
+          blockComment = j;
+          return i + delimiter.length;
+        }
+      }
+    }
+    if (syntax.stringDelimiters[b & 0xFF]) {
+      state = STRING;
+      quote = b;
+      lineHasCode = true;
+    } else if (b == '\'') {
+      lineHasCode = true;
+      return skipCharLiteral(buffer, i, limit);
+    } else if (!isBlank(b)) {
+      lineHasCode = true;
+    }
+    return i + 1;
+  }
+
+  /**
+   * @return the index following the character literal starting at i, or the index following the quote if it does not
+   * start a character literal
+   */
+  private static int skipCharLiteral(ByteBuffer buffer, int i, int limit) {
+    int end = i + 1;
+    if (end + 1 < limit && buffer.get(end) == '\\' && !isLineBreak(buffer.get(end + 1))) {
+      // the escaped character may be a quote
+      end += 2;
+      while (end < limit && end < i + MAX_ESCAPED_CHAR_LENGTH && buffer.get(end) != '\'' && !isLineBreak(buffer.get(end))) {
+        end++;
+      }
+    } else if (end + 1 < limit && buffer.get(end + 1) == '\'') {
+      end++;
+    } else if (end < limit) {
+      // character encoded on several bytes in UTF-8
+      end += utf8Length(buffer.get(end));
+    }
+    if (end < limit && end > i + 1 && buffer.get(end) == '\'' && !isLineBreak(buffer.get(i + 1)) && buffer.get(i + 1) != '\'') {
+      return end + 1;
+    }
+    return i + 1;
+  }
+
+  private static int utf8Length(byte first) {
+    if ((first & 0xE0) == 0xC0) {
+      return 2;
+    }
+    if ((first & 0xF0) == 0xE0) {
+      return 3;
+    }
+    return (first & 0xF8) == 0xF0 ? 4 : 1;
+  }
+
+  private void markComment(byte b) {
+    if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b < 0) {
+      // bytes of non-ASCII characters are negative
+      lineHasComment = true;
+    }
+  }
+
+  private void endLine() {
+    if (lineHasCode) {
+      linesOfCode++;
+    }
+    if (lineHasComment) {
+      commentLines++;
+    }
+    lineHasCode = false;
+    lineHasComment = false;
+    lineIsEmpty = true;
+    if (state != BLOCK_COMMENT) {
+      state = CODE;
+    }
+  }
+
+  private static boolean matches(ByteBuffer buffer, int i, int limit, byte[] delimiter) {
+    if (i + delimiter.length > limit) {
+      return false;
+    }
+    for (int j = 0; j < delimiter.length; j++) {
+      if (buffer.get(i + j) != delimiter[j]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLineBreak(byte b) {
+    return b == '\n' || b == '\r';
+  }
+
+  private static boolean isBlank(byte b) {
+    return b == ' ' || b == '\t' || b == '\f' || b == 0x0B;
+  }
+
+  int linesOfCode() {
+    return linesOfCode;
+  }
+
+  int commentLines() {
+    return commentLines;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+/**
+ * Hash table of int values by long keys, with open addressing and linear probing over primitive arrays, so that
+ * millions of keys are indexed without boxing them. Absent keys have the value 0. Not thread-safe.
+ * <p/>
+ * The capacity is a power of 2 of at most {@link #MAX_CAPACITY} slots, the largest array size that is a power of 2,
+ * so a table holds at most half as many keys.
+ */
+final class LongIntTable {
+
+  static final int MAX_CAPACITY = 1 << 30;
+
+  private static final float LOAD_FACTOR = 0.5f;
+  private static final long MIXER = 0xC2B2AE3D27D4EB4FL;
+
+  // the key 0 marks the free slots, its value is stored apart
+  private long[] keys;
+  private int[] values;
+  private int zeroValue = 0;
+  private boolean hasZero = false;
+  private int size = 0;
+  private int shift;
+  private int resizeThreshold;
+  private final int maxCapacity;
+
+  /**
+   * @throws IllegalStateException if the expected keys do not fit in {@link #MAX_CAPACITY} slots
+   */
+  LongIntTable(int expectedSize) {
+    this(expectedSize, MAX_CAPACITY);
+  }
+
+  LongIntTable(int expectedSize, int maxCapacity) {
+    this.maxCapacity = maxCapacity;
+    int capacity = 16;
+    while (capacity * LOAD_FACTOR < expectedSize) {
+      checkCapacity(capacity);
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  private void checkCapacity(int capacity) {
+    if (capacity >= maxCapacity) {
+      throw new IllegalStateException("Too many keys, the capacity of the table is limited to " + maxCapacity + " slots");
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    resizeThreshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  int size() {
+    return size;
+  }
+
+  int get(long key) {
+    if (key == 0L) {
+      return zeroValue;
+    }
+    int mask = keys.length - 1;
+    for (int i = slot(key); ; i = (i + 1) & mask) {
+      long k = keys[i];
+      if (k == key) {
+        return values[i];
+      }
+      if (k == 0L) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * @return the new value of the key
+   * @throws IllegalStateException if the table is full, see {@link #MAX_CAPACITY}
+   */
+  int add(long key, int delta) {
+    if (key == 0L) {
+      if (!hasZero) {
+        hasZero = true;
+        size++;
+      }
+      zeroValue += delta;
+      return zeroValue;
+    }
+    int mask = keys.length - 1;
+    int i = slot(key);
+    while (keys[i] != 0L) {
+      if (keys[i] == key) {
+        values[i] += delta;
+        return values[i];
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = delta;
+    size++;
+    if (size > resizeThreshold) {
+      rehash();
+    }
+    return delta;
+  }
+
+  private void rehash() {
+    checkCapacity(keys.length);
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(oldKeys.length << 1);
+    int mask = keys.length - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      long key = oldKeys[j];
+      if (key != 0L) {
+        int i = slot(key);
+        while (keys[i] != 0L) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  private int slot(long key) {
+    // the high bits of the product depend on all the bits of the key
+    return (int) ((key * MIXER) >>> shift);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads source files as bytes, without decoding them. Large files are memory-mapped. Small files are read into a
+ * buffer reused by each thread, because mapping them costs more than copying them and each mapping is only released by
+ * the garbage collector.
+ */
+final class SourceBuffers {
+
+  interface Visitor<T> {
+    /**
+     * @param source content of the file, between its position and its limit. Only valid during the call.
+     */
+    T visit(ByteBuffer source);
+  }
+
+  /**
+   * Files smaller than this number of bytes are read rather than mapped.
+   */
+  static final int MAPPING_THRESHOLD = 64 * 1024;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SourceBuffers.class);
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+    @Override
+    protected ByteBuffer initialValue() {
+      return ByteBuffer.allocate(MAPPING_THRESHOLD);
+    }
+  };
+
+  private SourceBuffers() {
+    // only static methods
+  }
+
+  /**
+   * Whether sources encoded with this charset can be scanned byte per byte: line breaks, quotes and delimiters must be
+   * encoded as in ASCII. It's not the case of UTF-16 for example.
+   */
+  static boolean isCompatible(Charset charset) {
+    String sample = "\n\r\t \"'\\/*#-;%<!>{}()";
+    try {
+      return Arrays.equals(sample.getBytes(ASCII), sample.getBytes(charset.name()));
+    } catch (UnsupportedEncodingException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the result of the visitor, or null if the file can not be read
+   */
+  @CheckForNull
+  static <T> T read(File file, Visitor<T> visitor) {
+    FileInputStream input = null;
+    try {
+      input = new FileInputStream(file);
+      FileChannel channel = input.getChannel();
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        LOG.warn("Source file too large to be scanned by common rules: {}", file);
+        return null;
+      }
+      ByteBuffer buffer;
+      if (size < MAPPING_THRESHOLD) {
+        buffer = BUFFERS.get();
+        buffer.clear();
+        while (buffer.position() < size && channel.read(buffer) >= 0) {
+          // reads until the end of the file
+        }
+        buffer.flip();
+      } else {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      }
+      return visitor.visit(buffer);
+    } catch (IOException e) {
+      LOG.warn("Fail to scan the source file " + file, e);
+      return null;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Rabin-Karp rolling hashes of the windows of consecutive significant lines of a source file. Lines are normalized by
+ * ignoring their blanks, and only the lines containing a letter or a digit are significant, so that indentation and
+ * lines made of braces or other punctuation do not prevent nor make duplications. The hash of a window is
+ * <code>h(l1) * B^(n-1) + ... + h(ln)</code> modulo 2^64, so that the hash of the next window is computed in
+ * constant time from the hash of the previous one.
+ */
+final class WindowHashes {
+
+  static final long[] NONE = new long[0];
+
+  private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+  private static final long FNV_PRIME = 0x100000001B3L;
+  private static final long BASE = 0x9E3779B97F4A7C15L;
+
+  private WindowHashes() {
+    // only static methods
+  }
+
+  /**
+   * @param window number of significant lines of each window
+   * @return the hashes of the windows in the order of the lines, or {@link #NONE} if the file has less lines than a
+   * window
+   */
+  static long[] of(ByteBuffer source, int window) {
+    long[] lines = lineHashes(source);
+    int lineCount = (int) lines[0];
+    if (lineCount < window) {
+      return NONE;
+    }
+    long power = 1L;
+    for (int i = 1; i < window; i++) {
+      power *= BASE;
+    }
+    long[] windows = new long[lineCount - window + 1];
+    long hash = 0L;
+    for (int i = 1; i <= window; i++) {
+      hash = hash * BASE + lines[i];
+    }
+    windows[0] = hash;
+    for (int i = window + 1; i <= lineCount; i++) {
+      hash = (hash - lines[i - window] * power) * BASE + lines[i];
+      windows[i - window] = hash;
+    }
+    return windows;
+  }
+
+  /**
+   * @return the number of significant lines, followed by their hashes
+   */
+  static long[] lineHashes(ByteBuffer source) {
+    long[] lines = new long[64];
+    int lineCount = 0;
+    long hash = FNV_OFFSET;
+    boolean significant = false;
+    int limit = source.limit();
+    for (int i = source.position(); i < limit; i++) {
+      byte b = source.get(i);
+      if (b == '\n' || b == '\r') {
+        if (significant) {
+          lineCount++;
+          if (lineCount == lines.length) {
+            lines = Arrays.copyOf(lines, lines.length * 2);
+          }
+          lines[lineCount] = hash;
+        }
+        hash = FNV_OFFSET;
+        significant = false;
+      } else if (b != ' ' && b != '\t' && b != '\f' && b != 0x0B) {
+        hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        // bytes of non-ASCII characters are negative
+        significant |= (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b < 0;
+      }
+    }
+    if (significant) {
+      lineCount++;
+      if (lineCount == lines.length) {
+        lines = Arrays.copyOf(lines, lines.length + 1);
+      }
+      lines[lineCount] = hash;
+    }
+    lines[0] = lineCount;
+    return lines;
+  }
+}
@@ -20,8 +20,12 @@
 package org.sonar.commonrules.api;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
@@ -29,9 +33,16 @@ import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.*;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
+import org.sonar.api.rules.Violation;
 import org.sonar.commonrules.internal.CommonRulesConstants;
+import org.sonar.commonrules.internal.checks.DuplicatedBlocksCheck;
 import org.sonar.commonrules.internal.checks.ViolationCostMatcher;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
 import java.util.List;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -42,6 +53,9 @@ public final class CommonRulesDecoratorTest {
 
   private static final String REPO_KEY = CommonRulesConstants.REPO_KEY_PREFIX + "java";
 
+  @org.junit.Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   Resource resource = mock(Resource.class);
   DecoratorContext context = mock(DecoratorContext.class);
   ProjectFileSystem fs = mock(ProjectFileSystem.class);
@@ -59,8 +73,18 @@ public final class CommonRulesDecoratorTest {
   @Test
   public void verifyDependsUponMetrics() throws Exception {
     List<Metric> metrics = decorator.dependsUponMetrics();
-    assertThat(metrics.size()).isEqualTo(2);
-    assertThat(metrics).containsOnly(CoreMetrics.LINE_COVERAGE, CoreMetrics.COMMENT_LINES_DENSITY);
+    assertThat(metrics.size()).isEqualTo(13);
+    assertThat(metrics).contains(CoreMetrics.LINE_COVERAGE, CoreMetrics.COMMENT_LINES_DENSITY, CoreMetrics.DUPLICATED_BLOCKS, CoreMetrics.TEST_FAILURES);
+  }
+
+  @Test
+  public void depends_upon_metrics_of_active_checks() throws Exception {
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_FAILED_UNIT_TESTS, null), RulePriority.MAJOR);
+    decorator.shouldExecuteOnProject(null);
+
+    assertThat(decorator.dependsUponMetrics()).containsOnly(CoreMetrics.DUPLICATED_BLOCKS, CoreMetrics.TEST_ERRORS, CoreMetrics.TEST_FAILURES);
   }
 
   @Test
@@ -114,6 +138,61 @@ public final class CommonRulesDecoratorTest {
     verify(context, times(1)).saveViolation(argThat(new ViolationCostMatcher(2)));
   }
 
+  @Test
+  public void read_each_measure_once_per_resource() {
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
+    when(resource.getLanguage()).thenReturn(Java.INSTANCE);
+    when(context.getMeasure(CoreMetrics.LINE_COVERAGE)).thenReturn(new Measure(CoreMetrics.LINE_COVERAGE, 90.0));
+    when(context.getMeasure(CoreMetrics.BRANCH_COVERAGE)).thenReturn(new Measure(CoreMetrics.BRANCH_COVERAGE, 90.0));
+
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE, null), RulePriority.MAJOR);
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_BRANCH_COVERAGE, null), RulePriority.MAJOR);
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(resource, context);
+
+    verify(context, times(1)).getMeasure(CoreMetrics.LINE_COVERAGE);
+    verify(context, times(1)).getMeasure(CoreMetrics.BRANCH_COVERAGE);
+    // metrics of inactive checks are not read
+    verify(context, never()).getMeasure(CoreMetrics.DUPLICATED_BLOCKS);
+    verify(context, never()).getMeasure(CoreMetrics.COMMENT_LINES_DENSITY);
+  }
+
+  @Test
+  public void do_not_execute_checks_without_input_measures() {
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
+    when(resource.getLanguage()).thenReturn(Java.INSTANCE);
+    when(resource.getQualifier()).thenReturn(Qualifiers.UNIT_TEST_FILE);
+    when(context.getMeasure(CoreMetrics.TEST_FAILURES)).thenReturn(new Measure(CoreMetrics.TEST_FAILURES, 1.0));
+
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_FAILED_UNIT_TESTS, null), RulePriority.MAJOR);
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_SKIPPED_UNIT_TESTS, null), RulePriority.MAJOR);
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(resource, context);
+
+    // only the "failed unit tests" check is executed
+    verify(context, times(1)).saveViolation(argThat(new ViolationCostMatcher(1)));
+  }
+
+  @Test
+  public void do_not_execute_main_file_checks_on_unit_test_files() {
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
+    when(resource.getLanguage()).thenReturn(Java.INSTANCE);
+    when(resource.getQualifier()).thenReturn(Qualifiers.UNIT_TEST_FILE);
+    when(context.getMeasure(CoreMetrics.LINE_COVERAGE)).thenReturn(new Measure(CoreMetrics.LINE_COVERAGE, 0.0));
+
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE, null), RulePriority.MAJOR);
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(resource, context);
+
+    verifyZeroInteractions(context);
+  }
+
   @Test
   public void do_not_decorate_other_languages() {
     when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
@@ -165,6 +244,279 @@ public final class CommonRulesDecoratorTest {
     verifyZeroInteractions(context);
   }
 
+  @Test
+  public void count_evaluations_of_module_if_statistics_are_enabled() throws Exception {
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.STATISTICS, true);
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
+    when(resource.getLanguage()).thenReturn(Java.INSTANCE);
+    when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(new Measure(CoreMetrics.DUPLICATED_BLOCKS, 2.0));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+    int slot = CommonRulesConstants.CLASSES.indexOf(DuplicatedBlocksCheck.class);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.sonar.commonrules:type=CheckStatistics,language=\"java\"");
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(resource, context);
+    assertThat(((long[]) server.getAttribute(name, "Violations"))[slot]).isEqualTo(1L);
+
+    // statistics of the next module start from zero
+    decorator.decorate(new Project("module"), context);
+    assertThat(server.isRegistered(name)).isFalse();
+    decorator.shouldExecuteOnProject(null);
+    assertThat(((long[]) server.getAttribute(name, "Violations"))[slot]).isEqualTo(0L);
+    decorator.decorate(new Project("module"), context);
+  }
+
+  @Test
+  public void attach_uncovered_lines_to_coverage_violations() {
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.COVERAGE_DETAILS, true);
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
+    when(resource.getLanguage()).thenReturn(Java.INSTANCE);
+    when(context.getMeasure(CoreMetrics.LINE_COVERAGE)).thenReturn(new Measure(CoreMetrics.LINE_COVERAGE, 50.0));
+    when(context.getMeasure(CoreMetrics.UNCOVERED_LINES)).thenReturn(new Measure(CoreMetrics.UNCOVERED_LINES, 2.0));
+    when(context.getMeasure(CoreMetrics.LINES_TO_COVER)).thenReturn(new Measure(CoreMetrics.LINES_TO_COVER, 4.0));
+    when(context.getMeasure(CoreMetrics.COVERAGE_LINE_HITS_DATA)).thenReturn(new Measure(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=1;2=0;3=1;5=0"));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    assertThat(decorator.dependsUponMetrics()).contains(CoreMetrics.COVERAGE_LINE_HITS_DATA, CoreMetrics.CONDITIONS_BY_LINE);
+    decorator.decorate(resource, context);
+
+    ArgumentCaptor<Violation> violation = ArgumentCaptor.forClass(Violation.class);
+    verify(context).saveViolation(violation.capture());
+    assertThat(violation.getValue().getLineId()).isEqualTo(2);
+    assertThat(violation.getValue().getMessage()).endsWith(" Uncovered lines: 2, 5.");
+  }
+
+  @Test
+  public void do_not_read_coverage_data_of_files_without_violations() {
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.COVERAGE_DETAILS, true);
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
+    when(resource.getLanguage()).thenReturn(Java.INSTANCE);
+    when(context.getMeasure(CoreMetrics.LINE_COVERAGE)).thenReturn(new Measure(CoreMetrics.LINE_COVERAGE, 90.0));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(resource, context);
+
+    verify(context, never()).getMeasure(CoreMetrics.COVERAGE_LINE_HITS_DATA);
+    verify(context, never()).saveViolation(any(Violation.class));
+  }
+
+  @Test
+  public void list_duplicated_blocks_in_violations() {
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.DUPLICATION_DETAILS, 10);
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
+    when(resource.getLanguage()).thenReturn(Java.INSTANCE);
+    when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(new Measure(CoreMetrics.DUPLICATED_BLOCKS, 1.0));
+    when(context.getMeasure(CoreMetrics.DUPLICATIONS_DATA)).thenReturn(new Measure(CoreMetrics.DUPLICATIONS_DATA,
+      "<duplications><g><b s=\"3\" l=\"4\" r=\"prj:Foo\"/><b s=\"8\" l=\"4\" r=\"prj:Bar\"/></g></duplications>"));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    assertThat(decorator.dependsUponMetrics()).contains(CoreMetrics.DUPLICATIONS_DATA);
+    decorator.decorate(resource, context);
+
+    ArgumentCaptor<Violation> violation = ArgumentCaptor.forClass(Violation.class);
+    verify(context).saveViolation(violation.capture());
+    assertThat(violation.getValue().getLineId()).isEqualTo(3);
+    assertThat(violation.getValue().getMessage()).endsWith(" Duplicated blocks: lines 3-6 (also in prj:Bar).");
+  }
+
+  @Test
+  public void list_failed_tests_of_unit_test_reports() throws Exception {
+    File reports = temp.newFolder("reports");
+    FileUtils.write(new File(reports, "TEST-org.sonar.FooTest.xml"), "<testsuite name=\"org.sonar.FooTest\"><testcase name=\"testFoo\"><failure/></testcase></testsuite>");
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.UNIT_TEST_REPORTS, "reports");
+    when(fs.resolvePath("reports")).thenReturn(reports);
+    when(fs.testFiles("java")).thenReturn(Lists.newArrayList(InputFileUtils.create(temp.getRoot(), "org/sonar/FooTest.java")));
+    when(context.getMeasure(CoreMetrics.TEST_FAILURES)).thenReturn(new Measure(CoreMetrics.TEST_FAILURES, 1.0));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_FAILED_UNIT_TESTS, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(new JavaFile("org.sonar.FooTest", true), context);
+
+    ArgumentCaptor<Violation> violation = ArgumentCaptor.forClass(Violation.class);
+    verify(context).saveViolation(violation.capture());
+    assertThat(violation.getValue().getMessage()).endsWith(" Failed tests: testFoo.");
+  }
+
+  @Test
+  public void read_coverage_of_files_without_coverage_measures() throws Exception {
+    File report = temp.newFile("jacoco.xml");
+    FileUtils.write(report, "<report><package name=\"org/sonar\"><sourcefile name=\"Foo.java\">"
+      + "<line nr=\"1\" mi=\"0\" ci=\"1\" mb=\"0\" cb=\"0\"/><line nr=\"2\" mi=\"1\" ci=\"0\" mb=\"0\" cb=\"0\"/></sourcefile></package></report>");
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.COVERAGE_REPORTS, "jacoco.xml");
+    when(fs.resolvePath("jacoco.xml")).thenReturn(report);
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(new JavaFile("org.sonar.Foo"), context);
+    decorator.decorate(new JavaFile("org.sonar.Bar"), context);
+
+    // 50% of 2 lines, 1 more line to reach 65%
+    verify(context).saveViolation(argThat(new ViolationCostMatcher(1)));
+  }
+
+  @Test
+  public void count_comment_lines_of_files_without_comment_measures() throws Exception {
+    FileUtils.write(new File(temp.getRoot(), "org/sonar/Foo.java"), "/* Foo */\nclass Foo {\n  int i;\n  int j;\n  int k;\n}\n");
+    Settings settings = new Settings();
+    settings.setProperty(String.format(CommonRulesProperties.LINE_COMMENTS, "java"), "//");
+    settings.setProperty(String.format(CommonRulesProperties.BLOCK_COMMENTS, "java"), "/* */");
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(InputFileUtils.create(temp.getRoot(), "org/sonar/Foo.java")));
+    when(fs.getSourceCharset()).thenReturn(Charset.forName("UTF-8"));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_COMMENT_DENSITY, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(new JavaFile("org.sonar.Foo"), context);
+
+    // 1 comment line for 5 lines of code, 1 more comment line to reach 25%
+    verify(context).saveViolation(argThat(new ViolationCostMatcher(1)));
+  }
+
+  @Test
+  public void detect_duplications_of_files_without_duplicated_blocks_measure() throws Exception {
+    String source = "class Foo {\n  int i = 0;\n  int j = 1;\n  int k = 2;\n}\n";
+    FileUtils.write(new File(temp.getRoot(), "org/sonar/Foo.java"), source);
+    FileUtils.write(new File(temp.getRoot(), "org/sonar/Bar.java"), source);
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.MINIMUM_DUPLICATED_LINES, 3);
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(InputFileUtils.create(temp.getRoot(), "org/sonar/Foo.java"),
+      InputFileUtils.create(temp.getRoot(), "org/sonar/Bar.java")));
+    when(fs.getSourceCharset()).thenReturn(Charset.forName("UTF-8"));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(new JavaFile("org.sonar.Foo"), context);
+
+    verify(context).saveViolation(argThat(new ViolationCostMatcher(1)));
+  }
+
+  @Test
+  public void index_duplications_in_working_directory() throws Exception {
+    String source = "class Foo {\n  int i = 0;\n  int j = 1;\n  int k = 2;\n}\n";
+    File sources = temp.newFolder("src");
+    FileUtils.write(new File(sources, "org/sonar/Foo.java"), source);
+    FileUtils.write(new File(sources, "org/sonar/Bar.java"), source);
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.MINIMUM_DUPLICATED_LINES, 3);
+    when(fs.getSonarWorkingDirectory()).thenReturn(temp.newFolder("work"));
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(InputFileUtils.create(sources, "org/sonar/Foo.java"),
+      InputFileUtils.create(sources, "org/sonar/Bar.java")));
+    when(fs.getSourceCharset()).thenReturn(Charset.forName("UTF-8"));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    decorator.shouldExecuteOnProject(null);
+    decorator.decorate(new JavaFile("org.sonar.Foo"), context);
+
+    verify(context).saveViolation(argThat(new ViolationCostMatcher(1)));
+    assertThat(new File(temp.getRoot(), "work/common-rules-java.duplications")).exists();
+  }
+
+  @Test
+  public void do_not_scan_sources_if_no_active_check_uses_them() {
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.MINIMUM_DUPLICATED_LINES, 3);
+    settings.setProperty(String.format(CommonRulesProperties.LINE_COMMENTS, "java"), "//");
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    assertThat(decorator.shouldExecuteOnProject(null)).isTrue();
+
+    verify(fs, never()).getSourceCharset();
+  }
+
+  @Test
+  public void do_not_read_reports_if_no_active_check_uses_them() {
+    Settings settings = new Settings();
+    settings.setProperty(CommonRulesProperties.COVERAGE_REPORTS, "jacoco.xml");
+    settings.setProperty(CommonRulesProperties.UNIT_TEST_REPORTS, "reports");
+    settings.setProperty(String.format(CommonRulesProperties.LINE_COMMENTS, "java"), "//");
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+
+    assertThat(decorator.shouldExecuteOnProject(null)).isTrue();
+
+    verify(fs, never()).resolvePath(anyString());
+    verify(fs, never()).getSourceCharset();
+  }
+
+  @Test
+  public void save_first_violations_on_their_files_if_limited() throws Exception {
+    Settings settings = new Settings();
+    settings.setProperty(String.format(CommonRulesProperties.MAX_VIOLATIONS, CommonRulesRepository.RULE_DUPLICATED_BLOCKS), 1);
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    CommonRulesDecorator decorator = new CommonRulesDecorator("java", fs, profile, settings) {
+    };
+    decorator.shouldExecuteOnProject(null);
+
+    DecoratorContext[] fileContexts = new DecoratorContext[3];
+    for (int i = 0; i < fileContexts.length; i++) {
+      fileContexts[i] = mock(DecoratorContext.class);
+      when(fileContexts[i].getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(new Measure(CoreMetrics.DUPLICATED_BLOCKS, i + 1.0));
+      decorator.decorate(new JavaFile("org.sonar.Foo" + i), fileContexts[i]);
+    }
+    Project module = new Project("module");
+    DecoratorContext moduleContext = mock(DecoratorContext.class);
+    when(moduleContext.getResource()).thenReturn(module);
+    decorator.decorate(module, moduleContext);
+
+    // each violation is saved on the context of its own file
+    ArgumentCaptor<Violation> violation = ArgumentCaptor.forClass(Violation.class);
+    verify(fileContexts[0]).saveViolation(violation.capture());
+    assertThat(violation.getValue().getResource().getKey()).isEqualTo("org.sonar.Foo0");
+    verify(fileContexts[1], never()).saveViolation(any(Violation.class));
+    verify(fileContexts[2], never()).saveViolation(any(Violation.class));
+    verify(moduleContext).saveViolation(violation.capture());
+    assertThat(violation.getValue().getResource()).isSameAs(module);
+    assertThat(violation.getValue().getCost()).isEqualTo(5.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_before_decoration_if_invalid_parameter() {
+    when(fs.mainFiles("java")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    Rule rule = Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_COMMENT_DENSITY, null);
+    rule.createParameter(CommonRulesRepository.PARAM_MIN_COMMENT_DENSITY);
+    profile.activateRule(rule, RulePriority.MAJOR).setParameter(CommonRulesRepository.PARAM_MIN_COMMENT_DENSITY, "-5");
+
+    decorator.shouldExecuteOnProject(null);
+  }
+
   static class Php implements Language {
     @Override
     public String getKey() {
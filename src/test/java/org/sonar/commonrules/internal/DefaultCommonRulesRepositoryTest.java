@@ -90,6 +90,15 @@ public final class DefaultCommonRulesRepositoryTest {
     assertThat(Double.parseDouble(rule.getParam(CommonRulesRepository.PARAM_MIN_COMMENT_DENSITY).getDefaultValue())).isEqualTo(42.0);
   }
 
+  @Test
+  public void param_values_are_not_shared_between_repositories() {
+    repository.enableInsufficientCommentDensityRule(42.0);
+    DefaultCommonRulesRepository otherRepository = new DefaultCommonRulesRepository("php").enableInsufficientCommentDensityRule(null);
+
+    Rule rule = otherRepository.rule(CommonRulesRepository.RULE_INSUFFICIENT_COMMENT_DENSITY);
+    assertThat(Double.parseDouble(rule.getParam(CommonRulesRepository.PARAM_MIN_COMMENT_DENSITY).getDefaultValue())).isEqualTo(25.0);
+  }
+
   @Test
   public void fail_if_rule_does_not_exist() {
     // typo
@@ -0,0 +1,136 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.resources.InputFile;
+import org.sonar.api.resources.Java;
+import org.sonar.api.resources.Project;
+import org.sonar.api.resources.ProjectFileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ModuleFilesTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ProjectFileSystem fs;
+  private File sourceDir;
+  private File testDir;
+  private Project project;
+
+  @Before
+  public void before() throws IOException {
+    sourceDir = temp.newFolder("src");
+    testDir = temp.newFolder("test");
+    fs = mock(ProjectFileSystem.class);
+    when(fs.getSourceDirs()).thenReturn(Lists.newArrayList(sourceDir));
+    when(fs.getTestDirs()).thenReturn(Lists.newArrayList(testDir));
+    project = mock(Project.class);
+    when(project.getLanguage()).thenReturn(Java.INSTANCE);
+  }
+
+  @Test
+  public void should_find_source_files_of_language() throws IOException {
+    touch(sourceDir, "org/sonar/Foo.java");
+
+    assertThat(new ModuleFiles(fs).hasFiles("java", project)).isTrue();
+    verify(fs, never()).mainFiles("java");
+  }
+
+  @Test
+  public void should_find_test_files_of_language() throws IOException {
+    touch(sourceDir, "org/sonar/foo.txt");
+    touch(testDir, "org/sonar/FooTest.java");
+
+    assertThat(new ModuleFiles(fs).hasFiles("java", project)).isTrue();
+  }
+
+  @Test
+  public void should_not_find_files_of_other_suffixes() throws IOException {
+    touch(sourceDir, "org/sonar/foo.txt");
+    touch(sourceDir, "org/sonar/Foo.javax");
+
+    assertThat(new ModuleFiles(fs).hasFiles("java", project)).isFalse();
+  }
+
+  @Test
+  public void should_ignore_hidden_files_and_excluded_source_files() throws IOException {
+    touch(sourceDir, ".svn/Foo.java");
+    touch(sourceDir, "org/.Foo.java");
+    touch(sourceDir, "org/sonar/generated/Foo.java");
+    when(project.getExclusionPatterns()).thenReturn(new String[] {"**/generated/**"});
+
+    assertThat(new ModuleFiles(fs).hasFiles("java", project)).isFalse();
+  }
+
+  @Test
+  public void should_cache_results_per_language() throws IOException {
+    ModuleFiles files = new ModuleFiles(fs);
+    assertThat(files.hasFiles("java", project)).isFalse();
+
+    touch(sourceDir, "org/sonar/Foo.java");
+
+    assertThat(files.hasFiles("java", project)).isFalse();
+    assertThat(new ModuleFiles(fs).hasFiles("java", project)).isTrue();
+  }
+
+  @Test
+  public void should_stop_at_first_file_of_language() throws IOException {
+    touch(sourceDir, "Foo.java");
+    File unreadable = mock(File.class);
+    when(fs.getTestDirs()).thenReturn(Lists.newArrayList(unreadable));
+
+    assertThat(new ModuleFiles(fs).hasFiles("java", project)).isTrue();
+    verify(unreadable, never()).listFiles();
+  }
+
+  @Test
+  public void should_ask_file_system_if_suffixes_are_unknown() {
+    when(fs.testFiles("flex")).thenReturn(Lists.newArrayList(mock(InputFile.class)));
+    when(fs.mainFiles("cobol")).thenReturn(Collections.<InputFile>emptyList());
+    ModuleFiles files = new ModuleFiles(fs);
+
+    assertThat(files.hasFiles("flex", project)).isTrue();
+    assertThat(files.hasFiles("flex", project)).isTrue();
+    assertThat(files.hasFiles("cobol", null)).isFalse();
+    verify(fs, times(1)).testFiles("flex");
+    verify(fs, never()).getSourceDirs();
+  }
+
+  private static void touch(File dir, String relativePath) throws IOException {
+    FileUtils.touch(new File(dir, relativePath));
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal;
+
+import org.junit.Test;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.commonrules.api.CommonRulesRepository;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public final class RuleTemplatesTest {
+
+  @Test
+  public void should_parse_all_checks() {
+    assertThat(RuleTemplates.size()).isEqualTo(CommonRulesConstants.CLASSES.size());
+  }
+
+  @Test
+  public void should_return_null_if_unknown_rule() {
+    assertThat(RuleTemplates.newRule("xxx")).isNull();
+  }
+
+  @Test
+  public void should_copy_rule_metadata() {
+    Rule rule = RuleTemplates.newRule(CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE);
+
+    assertThat(rule.getKey()).isEqualTo(CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE);
+    assertThat(rule.getConfigKey()).isEqualTo(CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE);
+    assertThat(rule.getName()).isEqualTo("Insufficient line coverage by unit tests");
+    assertThat(rule.getDescription()).startsWith("<p>An issue is created on a file as soon as the line coverage");
+    assertThat(rule.getSeverity()).isEqualTo(RulePriority.MAJOR);
+    assertThat(rule.getParams()).hasSize(1);
+    assertThat(rule.getParam(CommonRulesRepository.PARAM_MIN_LINE_COVERAGE).getDescription()).isEqualTo("The minimum required line coverage ratio.");
+    assertThat(rule.getParam(CommonRulesRepository.PARAM_MIN_LINE_COVERAGE).getDefaultValue()).isEqualTo("65.0");
+  }
+
+  @Test
+  public void should_return_independent_copies() {
+    Rule first = RuleTemplates.newRule(CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE);
+    first.getParam(CommonRulesRepository.PARAM_MIN_LINE_COVERAGE).setDefaultValue("42.0");
+
+    Rule second = RuleTemplates.newRule(CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE);
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getParam(CommonRulesRepository.PARAM_MIN_LINE_COVERAGE).getDefaultValue()).isEqualTo("65.0");
+  }
+}
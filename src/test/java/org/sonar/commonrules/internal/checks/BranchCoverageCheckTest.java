@@ -60,7 +60,7 @@ public class BranchCoverageCheckTest {
 
   @Test
   public void checkShoulGenerateViolationOnFileWithBadLineCoverage() {
-    check.setMinimumBranchCoverageRatio(60);
+    check = new BranchCoverageCheck(60);
     when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
     when(context.getMeasure(CoreMetrics.BRANCH_COVERAGE)).thenReturn(new Measure(CoreMetrics.BRANCH_COVERAGE, 20.0));
     when(context.getMeasure(CoreMetrics.CONDITIONS_TO_COVER)).thenReturn(new Measure(CoreMetrics.CONDITIONS_TO_COVER, 99.9));
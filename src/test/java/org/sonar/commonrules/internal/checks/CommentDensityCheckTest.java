@@ -32,7 +32,6 @@ import org.sonar.api.rules.Violation;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -75,7 +74,7 @@ public class CommentDensityCheckTest {
 
   @Test
   public void checkShoulGenerateViolationOnFileWithBadCommentDensity() {
-    check.setMinimumCommentDensity(20);
+    check = new CommentDensityCheck(20);
     when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
     when(context.getMeasure(CoreMetrics.COMMENT_LINES_DENSITY)).thenReturn(new Measure(CoreMetrics.COMMENT_LINES_DENSITY, 16.6));
     when(context.getMeasure(CoreMetrics.NCLOC)).thenReturn(new Measure(CoreMetrics.NCLOC, 100.0));
@@ -91,14 +90,10 @@ public class CommentDensityCheckTest {
    */
   @Test
   public void shouldFailIfMinimumCommentDensitySetTo100() throws Exception {
-    check.setMinimumCommentDensity(100);
-
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("100.0 is not a valid value for minimum required comment density for rule 'CommentDensityCheck' (must be >= 0 and < 100).");
 
-    check.checkResource(resource, context, null);
-
-    verify(context, never()).saveViolation(any(Violation.class));
+    new CommentDensityCheck(100);
   }
 
   /**
@@ -106,14 +101,10 @@ public class CommentDensityCheckTest {
    */
   @Test
   public void shouldFailIfMinimumCommentDensitySetToNegative() throws Exception {
-    check.setMinimumCommentDensity(-5);
-
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("-5.0 is not a valid value for minimum required comment density for rule 'CommentDensityCheck' (must be >= 0 and < 100).");
 
-    check.checkResource(resource, context, null);
-
-    verify(context, never()).saveViolation(any(Violation.class));
+    new CommentDensityCheck(-5);
   }
 
 }
@@ -0,0 +1,136 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.Violation;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CoverageDetailsTest {
+
+  Rule rule = Rule.create("common-java", "InsufficientLineCoverage");
+  JavaFile resource = new JavaFile("org.sonar.Foo");
+
+  @Test
+  public void should_not_load_files_without_data() {
+    assertThat(CoverageDetails.load(mock(DecoratorContext.class))).isNull();
+  }
+
+  @Test
+  public void should_load_data_of_measures() {
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getMeasure(CoreMetrics.COVERAGE_LINE_HITS_DATA)).thenReturn(new Measure(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=1;2=0"));
+
+    CoverageDetails details = CoverageDetails.load(context);
+
+    assertThat(details.uncoveredLines().first()).isEqualTo(2);
+    assertThat(details.uncoveredConditions().first()).isNull();
+  }
+
+  @Test
+  public void should_list_uncovered_lines_by_ranges() {
+    CoverageDetails details = new CoverageDetails("1=1;3=0;5=0;6=0;7=0;9=2;12=0", null, null);
+
+    assertThat(details.uncoveredLines().first()).isEqualTo(3);
+    assertThat(render(details.uncoveredLines())).isEqualTo(" Uncovered lines: 3, 5-7, 12.");
+  }
+
+  @Test
+  public void should_limit_listed_lines() {
+    StringBuilder lineHits = new StringBuilder();
+    for (int line = 1; line <= 2 * (CoverageDetails.MAX_LISTED_LINES + 3); line += 2) {
+      lineHits.append(line).append("=0;");
+    }
+    String message = render(new CoverageDetails(lineHits.toString(), null, null).uncoveredLines());
+
+    assertThat(message).startsWith(" Uncovered lines: 1, 3, 5,");
+    assertThat(message).endsWith(", 99 and 3 more.");
+  }
+
+  @Test
+  public void should_list_lines_with_uncovered_conditions() {
+    CoverageDetails details = new CoverageDetails(null, "4=2;8=4;10=2;15=2", "4=2;8=1;15=0");
+
+    assertThat(details.uncoveredConditions().first()).isEqualTo(8);
+    assertThat(render(details.uncoveredConditions())).isEqualTo(" Lines with uncovered conditions: 8 (1/4 covered), 10 (0/2 covered), 15 (0/2 covered).");
+  }
+
+  @Test
+  public void should_consider_conditions_uncovered_without_covered_data() {
+    CoverageDetails details = new CoverageDetails(null, "4=2", null);
+
+    assertThat(render(details.uncoveredConditions())).isEqualTo(" Lines with uncovered conditions: 4 (0/2 covered).");
+  }
+
+  @Test
+  public void should_not_list_anything_if_all_lines_are_covered() {
+    CoverageDetails details = new CoverageDetails("1=1;2=3", "1=2", "1=2");
+
+    assertThat(details.uncoveredLines().first()).isNull();
+    assertThat(render(details.uncoveredLines())).isEmpty();
+    assertThat(details.uncoveredConditions().first()).isNull();
+    assertThat(render(details.uncoveredConditions())).isEmpty();
+  }
+
+  @Test
+  public void should_set_violation_on_first_uncovered_line() {
+    CoverageDetails details = new CoverageDetails("1=1;3=0;4=0", null, null);
+
+    Violation violation = new LineCoverageCheck().createViolation(resource, rule, 2.0, new FileDetails(details, null));
+
+    assertThat(violation.getLineId()).isEqualTo(3);
+    assertThat(violation.getMessage()).isEqualTo(
+      "2 more lines of code need to be covered by unit tests to reach the minimum threshold of 65.0% lines coverage. Uncovered lines: 3-4.");
+  }
+
+  @Test
+  public void should_set_violation_on_first_line_with_uncovered_conditions() {
+    CoverageDetails details = new CoverageDetails("1=0", "7=2", "7=1");
+
+    Violation violation = new BranchCoverageCheck().createViolation(resource, rule, 1.0, new FileDetails(details, null));
+
+    assertThat(violation.getLineId()).isEqualTo(7);
+    assertThat(violation.getMessage()).endsWith("branch coverage. Lines with uncovered conditions: 7 (1/2 covered).");
+  }
+
+  @Test
+  public void should_ignore_details_of_other_checks_or_without_lines() {
+    CoverageDetails details = new CoverageDetails("1=0", null, null);
+
+    assertThat(new DuplicatedBlocksCheck().createViolation(resource, rule, 1.0, new FileDetails(details, null)).hasLineId()).isFalse();
+    Violation violation = new BranchCoverageCheck().createViolation(resource, rule, 1.0, new FileDetails(details, null));
+    assertThat(violation.hasLineId()).isFalse();
+    assertThat(violation.getMessage()).isEqualTo(new BranchCoverageCheck().message(1.0));
+  }
+
+  private static String render(ViolationLocations lines) {
+    StringBuilder message = new StringBuilder();
+    lines.appendTo(message);
+    return message.toString();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.junit.Test;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.Violation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DuplicationDetailsTest {
+
+  private static final String GROUPS = "<duplications>"
+    + "<g><b s=\"10\" l=\"5\" r=\"prj:org.Foo\"/><b s=\"40\" l=\"5\" r=\"prj:org.Bar\"/></g>"
+    + "<g><b s=\"30\" l=\"8\" r=\"prj:org.Foo\"/><b s=\"1\" l=\"8\" r=\"prj:org.Bar\"/><b s=\"7\" l=\"8\" r=\"prj:org.Baz\"/></g>"
+    + "</duplications>";
+
+  Rule rule = Rule.create("common-java", "DuplicatedBlocks");
+  JavaFile resource = new JavaFile("org.Foo");
+
+  @Test
+  public void should_read_groups_of_blocks() {
+    List<DuplicationDetails.DuplicatedBlock> blocks = new ArrayList<DuplicationDetails.DuplicatedBlock>();
+
+    assertThat(new DuplicationDetails(GROUPS, 10).read(blocks, 10)).isFalse();
+
+    assertThat(blocks).hasSize(2);
+    assertThat(blocks.get(0).start).isEqualTo(10);
+    assertThat(blocks.get(0).length).isEqualTo(5);
+    assertThat(blocks.get(0).otherFiles).containsExactly("prj:org.Bar");
+    assertThat(blocks.get(1).start).isEqualTo(30);
+    assertThat(blocks.get(1).otherFiles).containsExactly("prj:org.Bar", "prj:org.Baz");
+  }
+
+  @Test
+  public void should_read_pairs_of_blocks() {
+    String data = "<duplications>"
+      + "<duplication lines=\"5\" start=\"10\" target-start=\"40\" target-resource=\"prj:org.Bar\"/>"
+      + "<duplication lines=\"5\" start=\"10\" target-start=\"7\" target-resource=\"prj:org.Baz\"/>"
+      + "<duplication lines=\"3\" start=\"60\" target-start=\"7\" target-resource=\"prj:org.Baz\"/>"
+      + "</duplications>";
+    List<DuplicationDetails.DuplicatedBlock> blocks = new ArrayList<DuplicationDetails.DuplicatedBlock>();
+
+    new DuplicationDetails(data, 10).read(blocks, 10);
+
+    assertThat(blocks).hasSize(2);
+    assertThat(blocks.get(0).otherFiles).containsExactly("prj:org.Bar", "prj:org.Baz");
+    assertThat(blocks.get(1).start).isEqualTo(60);
+  }
+
+  @Test
+  public void should_stop_reading_at_maximum_number_of_blocks() {
+    StringBuilder data = new StringBuilder("<duplications>");
+    for (int i = 1; i <= 10000; i++) {
+      data.append("<g><b s=\"").append(i).append("\" l=\"1\" r=\"a\"/><b s=\"1\" l=\"1\" r=\"b\"/></g>");
+    }
+    // malformed after the maximum, never read
+    data.append("<g>");
+    List<DuplicationDetails.DuplicatedBlock> blocks = new ArrayList<DuplicationDetails.DuplicatedBlock>();
+
+    assertThat(new DuplicationDetails(data.toString(), 3).read(blocks, 3)).isTrue();
+
+    assertThat(blocks).hasSize(3);
+    assertThat(blocks.get(2).start).isEqualTo(3);
+  }
+
+  @Test
+  public void should_keep_blocks_read_before_malformed_data() {
+    String data = "<duplications><g><b s=\"10\" l=\"5\" r=\"a\"/><b s=\"x\" l=\"5\" r=\"b\"/></g><g><b s=\"y\"/></g><g>";
+    List<DuplicationDetails.DuplicatedBlock> blocks = new ArrayList<DuplicationDetails.DuplicatedBlock>();
+
+    assertThat(new DuplicationDetails(data, 10).read(blocks, 10)).isFalse();
+
+    assertThat(blocks).hasSize(1);
+    assertThat(blocks.get(0).otherFiles).containsExactly("b");
+  }
+
+  @Test
+  public void should_ignore_external_entities() {
+    String data = "<!DOCTYPE d [<!ENTITY e SYSTEM \"file:///etc/passwd\">]><duplications><g><b s=\"1\" l=\"2\" r=\"&e;\"/></g></duplications>";
+
+    String message = render(new DuplicationDetails(data, 10).duplicatedBlocks());
+
+    assertThat(message).doesNotContain("root");
+  }
+
+  @Test
+  public void should_set_violation_on_first_block() {
+    FileDetails details = new FileDetails(null, new DuplicationDetails(GROUPS, 10));
+
+    Violation violation = new DuplicatedBlocksCheck().createViolation(resource, rule, 2.0, details);
+
+    assertThat(violation.getLineId()).isEqualTo(10);
+    assertThat(violation.getMessage()).isEqualTo("2 duplicated blocks of code. Duplicated blocks: lines 10-14 (also in prj:org.Bar), "
+      + "lines 30-37 (also in prj:org.Bar, prj:org.Baz).");
+  }
+
+  @Test
+  public void should_list_maximum_number_of_blocks() {
+    String message = render(new DuplicationDetails(GROUPS, 1).duplicatedBlocks());
+
+    assertThat(message).isEqualTo(" Duplicated blocks: lines 10-14 (also in prj:org.Bar), ....");
+  }
+
+  private static String render(ViolationLocations lines) {
+    StringBuilder message = new StringBuilder();
+    lines.appendTo(message);
+    return message.toString();
+  }
+}
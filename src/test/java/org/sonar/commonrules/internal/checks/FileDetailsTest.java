@@ -0,0 +1,103 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.Violation;
+import org.sonar.commonrules.internal.reports.UnitTestIndex;
+import org.sonar.commonrules.internal.reports.UnitTestIndexes;
+
+import java.util.EnumSet;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileDetailsTest {
+
+  DecoratorContext context = mock(DecoratorContext.class);
+  JavaFile resource = new JavaFile("org.sonar.Foo");
+  JavaFile testResource = new JavaFile("org.sonar.FooTest", true);
+
+  @Test
+  public void should_load_nothing_if_disabled() {
+    assertThat(FileDetails.Loader.DISABLED.isEnabled()).isFalse();
+    assertThat(FileDetails.Loader.DISABLED.metrics()).isEmpty();
+    assertThat(FileDetails.Loader.DISABLED.restrictTo(EnumSet.allOf(CheckMetric.class)).isEnabled()).isFalse();
+  }
+
+  @Test
+  public void should_load_details_used_by_active_checks() {
+    FileDetails.Loader loader = new FileDetails.Loader(true, 5, UnitTestIndex.EMPTY);
+
+    assertThat(loader.metrics()).containsOnly(CoreMetrics.COVERAGE_LINE_HITS_DATA, CoreMetrics.CONDITIONS_BY_LINE, CoreMetrics.COVERED_CONDITIONS_BY_LINE,
+      CoreMetrics.DUPLICATIONS_DATA);
+    assertThat(loader.restrictTo(EnumSet.of(CheckMetric.DUPLICATED_BLOCKS)).metrics()).containsOnly(CoreMetrics.DUPLICATIONS_DATA);
+    assertThat(loader.restrictTo(EnumSet.of(CheckMetric.BRANCH_COVERAGE)).metrics()).excludes(CoreMetrics.DUPLICATIONS_DATA);
+    assertThat(loader.restrictTo(EnumSet.of(CheckMetric.TEST_ERRORS)).isEnabled()).isFalse();
+  }
+
+  @Test
+  public void should_load_coverage_of_main_files_only() {
+    when(context.getMeasure(CoreMetrics.COVERAGE_LINE_HITS_DATA)).thenReturn(new Measure(CoreMetrics.COVERAGE_LINE_HITS_DATA, "1=0"));
+    when(context.getMeasure(CoreMetrics.DUPLICATIONS_DATA)).thenReturn(new Measure(CoreMetrics.DUPLICATIONS_DATA, "<duplications/>"));
+    FileDetails.Loader loader = new FileDetails.Loader(true, 5, UnitTestIndex.EMPTY);
+
+    FileDetails mainFile = loader.load(resource, false, context);
+    assertThat(mainFile.coverage()).isNotNull();
+    assertThat(mainFile.duplications()).isNotNull();
+
+    FileDetails unitTestFile = loader.load(testResource, true, context);
+    assertThat(unitTestFile.coverage()).isNull();
+    assertThat(unitTestFile.duplications()).isNotNull();
+  }
+
+  @Test
+  public void should_not_load_files_without_data() {
+    assertThat(new FileDetails.Loader(true, 5, UnitTestIndex.EMPTY).load(resource, false, context)).isNull();
+  }
+
+  @Test
+  public void should_list_failed_and_skipped_tests() {
+    UnitTestIndex unitTests = UnitTestIndexes.of("org.sonar.FooTest", new String[] {"testA", "testB"}, new String[] {"testC"});
+    FileDetails.Loader loader = new FileDetails.Loader(false, 0, unitTests).restrictTo(EnumSet.of(CheckMetric.TEST_FAILURES, CheckMetric.TEST_ERRORS));
+    Rule rule = Rule.create("common-java", "FailedUnitTests");
+
+    assertThat(loader.load(resource, false, context)).isNull();
+    FileDetails details = loader.load(testResource, true, context);
+    Violation failed = new FailedUnitTestsCheck().createViolation(testResource, rule, 2.0, details);
+    Violation skipped = new SkippedUnitTestsCheck().createViolation(testResource, rule, 1.0, details);
+
+    assertThat(failed.hasLineId()).isFalse();
+    assertThat(failed.getMessage()).isEqualTo("Some tests are not successful. You should fix them. Failed tests: testA, testB.");
+    assertThat(skipped.getMessage()).isEqualTo("Some tests are skipped. You should activate them or remove them. Skipped tests: testC.");
+    assertThat(new FileDetails.Loader(false, 0, unitTests).restrictTo(EnumSet.of(CheckMetric.NCLOC)).isEnabled()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_if_negative_maximum_number_of_blocks() {
+    new FileDetails.Loader(false, -1, UnitTestIndex.EMPTY);
+  }
+}
@@ -69,7 +69,7 @@ public class LineCoverageCheckTest {
 
   @Test
   public void checkShoulGenerateViolationOnFileWithBadLineCoverage() {
-    check.setMinimumLineCoverageRatio(60);
+    check = new LineCoverageCheck(60);
     when(resource.getScope()).thenReturn(Resource.SCOPE_ENTITY);
     when(context.getMeasure(CoreMetrics.LINE_COVERAGE)).thenReturn(new Measure(CoreMetrics.LINE_COVERAGE, 20.0));
     when(context.getMeasure(CoreMetrics.LINES_TO_COVER)).thenReturn(new Measure(CoreMetrics.LINES_TO_COVER, 100.0));
@@ -0,0 +1,87 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LineDataCursorTest {
+
+  @Test
+  public void should_read_entries_in_order() {
+    LineDataCursor cursor = new LineDataCursor("1=0;3=12;250=1");
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.line()).isEqualTo(1);
+    assertThat(cursor.value()).isEqualTo(0);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.line()).isEqualTo(3);
+    assertThat(cursor.value()).isEqualTo(12);
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.line()).isEqualTo(250);
+    assertThat(cursor.value()).isEqualTo(1);
+    assertThat(cursor.next()).isFalse();
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test
+  public void should_read_empty_data() {
+    assertThat(new LineDataCursor("").next()).isFalse();
+    assertThat(new LineDataCursor(";").next()).isFalse();
+  }
+
+  @Test
+  public void should_skip_malformed_entries() {
+    LineDataCursor cursor = new LineDataCursor("1=;=2;x=3;4=y;5;6=1=2;7=7;");
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.line()).isEqualTo(7);
+    assertThat(cursor.value()).isEqualTo(7);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test
+  public void should_saturate_large_values() {
+    LineDataCursor cursor = new LineDataCursor("2=99999999999999");
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.line()).isEqualTo(2);
+    assertThat(cursor.value()).isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void should_read_large_data() {
+    StringBuilder data = new StringBuilder();
+    for (int line = 1; line <= 100000; line++) {
+      data.append(line).append('=').append(line % 3).append(';');
+    }
+    LineDataCursor cursor = new LineDataCursor(data);
+
+    int entries = 0;
+    long hits = 0;
+    while (cursor.next()) {
+      entries++;
+      hits += cursor.value();
+    }
+    assertThat(entries).isEqualTo(100000);
+    assertThat(hits).isEqualTo(100000L);
+  }
+}
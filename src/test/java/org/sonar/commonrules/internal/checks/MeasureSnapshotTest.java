@@ -0,0 +1,71 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class MeasureSnapshotTest {
+
+  MeasureSnapshot snapshot = new MeasureSnapshot();
+  DecoratorContext context = mock(DecoratorContext.class);
+
+  @Test
+  public void should_load_only_requested_metrics() {
+    when(context.getMeasure(CoreMetrics.LINE_COVERAGE)).thenReturn(new Measure(CoreMetrics.LINE_COVERAGE, 42.0));
+    when(context.getMeasure(CoreMetrics.NCLOC)).thenReturn(new Measure(CoreMetrics.NCLOC, 100.0));
+
+    snapshot.load(context, new CheckMetric[] {CheckMetric.LINE_COVERAGE, CheckMetric.UNCOVERED_LINES});
+
+    assertThat(snapshot.has(CheckMetric.LINE_COVERAGE)).isTrue();
+    assertThat(snapshot.get(CheckMetric.LINE_COVERAGE)).isEqualTo(42.0);
+    assertThat(snapshot.has(CheckMetric.UNCOVERED_LINES)).isFalse();
+    assertThat(snapshot.get(CheckMetric.UNCOVERED_LINES)).isEqualTo(0.0);
+    assertThat(snapshot.has(CheckMetric.NCLOC)).isFalse();
+    verify(context, times(1)).getMeasure(CoreMetrics.LINE_COVERAGE);
+    verify(context, times(1)).getMeasure(CoreMetrics.UNCOVERED_LINES);
+    verifyNoMoreInteractions(context);
+  }
+
+  @Test
+  public void should_reset_values_of_previous_resource() {
+    when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(new Measure(CoreMetrics.DUPLICATED_BLOCKS, 3.0));
+    snapshot.load(context, new CheckMetric[] {CheckMetric.DUPLICATED_BLOCKS});
+    assertThat(snapshot.get(CheckMetric.DUPLICATED_BLOCKS)).isEqualTo(3.0);
+
+    snapshot.load(mock(DecoratorContext.class), new CheckMetric[] {CheckMetric.DUPLICATED_BLOCKS});
+    assertThat(snapshot.has(CheckMetric.DUPLICATED_BLOCKS)).isFalse();
+    assertThat(snapshot.get(CheckMetric.DUPLICATED_BLOCKS)).isEqualTo(0.0);
+  }
+
+  @Test
+  public void measure_without_value_is_present_but_zero() {
+    when(context.getMeasure(CoreMetrics.LINE_COVERAGE)).thenReturn(new Measure(CoreMetrics.LINE_COVERAGE));
+    snapshot.load(context, new CheckMetric[] {CheckMetric.LINE_COVERAGE});
+
+    assertThat(snapshot.has(CheckMetric.LINE_COVERAGE)).isTrue();
+    assertThat(snapshot.get(CheckMetric.LINE_COVERAGE)).isEqualTo(0.0);
+  }
+}
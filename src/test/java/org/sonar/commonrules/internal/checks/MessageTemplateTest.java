@@ -0,0 +1,68 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.checks;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MessageTemplateTest {
+
+  @Test
+  public void should_render_count_and_threshold() {
+    MessageTemplate template = MessageTemplate.parse("{count} more lines to reach {threshold}% coverage.");
+
+    assertThat(template.isConstant()).isFalse();
+    assertThat(template.render(12.0, 65.0)).isEqualTo("12 more lines to reach 65.0% coverage.");
+  }
+
+  @Test
+  public void should_render_placeholders_at_both_ends() {
+    assertThat(MessageTemplate.parse("{count}").render(3.0, Double.NaN)).isEqualTo("3");
+    assertThat(MessageTemplate.parse("{threshold}{count}").render(3.0, 1.5)).isEqualTo("1.53");
+  }
+
+  @Test
+  public void should_share_constant_message() {
+    MessageTemplate template = MessageTemplate.parse("Some tests are skipped.");
+
+    assertThat(template.isConstant()).isTrue();
+    assertThat(template.render(1.0, Double.NaN)).isSameAs(template.render(2.0, Double.NaN));
+  }
+
+  @Test
+  public void should_render_messages_of_checks_as_before() {
+    LineCoverageCheck lineCoverage = new LineCoverageCheck(80);
+    BranchCoverageCheck branchCoverage = new BranchCoverageCheck();
+    CommentDensityCheck commentDensity = new CommentDensityCheck();
+
+    assertThat(lineCoverage.message(4.0)).isEqualTo("4 more lines of code need to be covered by unit tests to reach the minimum threshold of 80.0% lines coverage.");
+    assertThat(branchCoverage.message(2.0)).isEqualTo("2 more branches need to be covered by unit tests to reach the minimum threshold of 65.0% branch coverage.");
+    assertThat(commentDensity.message(7.0)).isEqualTo("7 more comment lines need to be written to reach the minimum threshold of 25.0% comment density.");
+    assertThat(new DuplicatedBlocksCheck().message(3.0)).isEqualTo("3 duplicated blocks of code.");
+    assertThat(new FailedUnitTestsCheck().message(3.0)).isEqualTo("Some tests are not successful. You should fix them.");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_on_unknown_placeholder() {
+    MessageTemplate.parse("{count} of {total}");
+  }
+
+}
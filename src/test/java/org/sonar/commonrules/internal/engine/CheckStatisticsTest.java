@@ -0,0 +1,96 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.engine;
+
+import org.junit.Test;
+import org.sonar.commonrules.api.CommonRulesRepository;
+import org.sonar.commonrules.internal.checks.CommonCheck;
+import org.sonar.commonrules.internal.checks.DuplicatedBlocksCheck;
+import org.sonar.commonrules.internal.checks.FailedUnitTestsCheck;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CheckStatisticsTest {
+
+  private static final int DUPLICATED_BLOCKS = CheckStatistics.slotOf(DuplicatedBlocksCheck.class);
+
+  @Test
+  public void should_count_evaluations_per_check() {
+    CheckStatistics statistics = new CheckStatistics("count");
+    statistics.record(DUPLICATED_BLOCKS, 100L, 2.0);
+    statistics.record(DUPLICATED_BLOCKS, 50L, CommonCheck.NO_VIOLATION);
+    statistics.record(DUPLICATED_BLOCKS, 50L, 3.5);
+
+    assertThat(statistics.getRuleKeys()[DUPLICATED_BLOCKS]).isEqualTo(CommonRulesRepository.RULE_DUPLICATED_BLOCKS);
+    assertThat(statistics.getInvocations()[DUPLICATED_BLOCKS]).isEqualTo(3L);
+    assertThat(statistics.getNanos()[DUPLICATED_BLOCKS]).isEqualTo(200L);
+    assertThat(statistics.getViolations()[DUPLICATED_BLOCKS]).isEqualTo(2L);
+    assertThat(statistics.getRemediationCosts()[DUPLICATED_BLOCKS]).isEqualTo(5.5);
+    assertThat(statistics.getInvocations()[CheckStatistics.slotOf(FailedUnitTestsCheck.class)]).isEqualTo(0L);
+  }
+
+  @Test
+  public void should_reset_counters() {
+    CheckStatistics statistics = new CheckStatistics("reset");
+    statistics.record(DUPLICATED_BLOCKS, 100L, 2.0);
+
+    statistics.reset();
+
+    assertThat(statistics.getInvocations()[DUPLICATED_BLOCKS]).isEqualTo(0L);
+    assertThat(statistics.getRemediationCosts()[DUPLICATED_BLOCKS]).isEqualTo(0.0);
+
+    statistics.record(DUPLICATED_BLOCKS, 100L, 3.0);
+    assertThat(statistics.getInvocations()[DUPLICATED_BLOCKS]).isEqualTo(1L);
+    assertThat(statistics.getRemediationCosts()[DUPLICATED_BLOCKS]).isEqualTo(3.0);
+  }
+
+  @Test
+  public void should_log_counters() {
+    CheckStatistics statistics = new CheckStatistics("log");
+    statistics.record(DUPLICATED_BLOCKS, 100L, 2.0);
+
+    statistics.log();
+  }
+
+  @Test
+  public void should_publish_mbean_until_unregistered() throws Exception {
+    CheckStatistics statistics = new CheckStatistics("jmx");
+    statistics.register();
+    statistics.record(DUPLICATED_BLOCKS, 100L, 2.0);
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.sonar.commonrules:type=CheckStatistics,language=\"jmx\"");
+    assertThat(server.getAttribute(name, "Language")).isEqualTo("jmx");
+    assertThat(((long[]) server.getAttribute(name, "Invocations"))[DUPLICATED_BLOCKS]).isEqualTo(1L);
+
+    // already published
+    CheckStatistics other = new CheckStatistics("jmx");
+    other.register();
+    assertThat(other.isRegistered()).isFalse();
+
+    statistics.unregister();
+    assertThat(server.isRegistered(name)).isFalse();
+    assertThat(statistics.isRegistered()).isFalse();
+  }
+}
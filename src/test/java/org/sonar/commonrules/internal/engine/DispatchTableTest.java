@@ -0,0 +1,157 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.engine;
+
+import org.junit.Test;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.checks.AnnotationCheckFactory;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.commonrules.api.CommonRulesRepository;
+import org.sonar.commonrules.internal.CommonRulesConstants;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.CommentDensityCheck;
+import org.sonar.commonrules.internal.checks.CommonCheck;
+import org.sonar.commonrules.internal.checks.DuplicatedBlocksCheck;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class DispatchTableTest {
+
+  private static final String REPO_KEY = CommonRulesConstants.REPO_KEY_PREFIX + "java";
+
+  RulesProfile profile = RulesProfile.create("profile", "java");
+  DecoratorContext context = mock(DecoratorContext.class);
+
+  @Test
+  public void empty_table() {
+    assertThat(DispatchTable.EMPTY.isEmpty()).isTrue();
+    assertThat(DispatchTable.EMPTY.metrics()).isEmpty();
+  }
+
+  @Test
+  public void should_resolve_rules_of_active_checks() {
+    Rule rule = Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null);
+    profile.activateRule(rule, RulePriority.MAJOR);
+    DispatchTable table = create();
+    when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(new Measure(CoreMetrics.DUPLICATED_BLOCKS, 3.0));
+
+    MeasureSnapshot measures = new MeasureSnapshot();
+    DispatchTable.Lane lane = table.lane(false);
+    lane.load(measures, context);
+
+    assertThat(table.isEmpty()).isFalse();
+    assertThat(table.size()).isEqualTo(1);
+    assertThat(table.rule(0)).isEqualTo(rule);
+    assertThat(table.metrics()).containsOnly(CheckMetric.DUPLICATED_BLOCKS);
+    assertThat(lane.size()).isEqualTo(1);
+    assertThat(lane.checkIndex(0)).isEqualTo(0);
+    assertThat(lane.evaluate(0, measures)).isEqualTo(3.0);
+  }
+
+  @Test
+  public void should_skip_checks_without_input_measures() {
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_COMMENT_DENSITY, null), RulePriority.MAJOR);
+    DispatchTable table = create();
+    MeasureSnapshot measures = new MeasureSnapshot();
+    DispatchTable.Lane lane = table.lane(false);
+    lane.load(measures, context);
+
+    assertThat(table.metrics()).hasSize(4);
+    assertThat(lane.size()).isEqualTo(2);
+    assertThat(CommonCheck.isViolation(lane.evaluate(0, measures))).isFalse();
+    assertThat(CommonCheck.isViolation(lane.evaluate(1, measures))).isFalse();
+  }
+
+  @Test
+  public void should_dispatch_according_to_applicability() {
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_LINE_COVERAGE, null), RulePriority.MAJOR);
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_SKIPPED_UNIT_TESTS, null), RulePriority.MAJOR);
+    DispatchTable table = create();
+    table.lane(true).load(new MeasureSnapshot(), context);
+    verify(context).getMeasure(CoreMetrics.SKIPPED_TESTS);
+    verifyNoMoreInteractions(context);
+
+    DecoratorContext mainFileContext = mock(DecoratorContext.class);
+    table.lane(false).load(new MeasureSnapshot(), mainFileContext);
+    verify(mainFileContext, never()).getMeasure(CoreMetrics.SKIPPED_TESTS);
+    verify(mainFileContext).getMeasure(CoreMetrics.LINE_COVERAGE);
+  }
+
+  @Test
+  public void should_not_read_measures_if_no_check_applies() {
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_FAILED_UNIT_TESTS, null), RulePriority.MAJOR);
+
+    DispatchTable table = create();
+    table.lane(false).load(new MeasureSnapshot(), context);
+
+    verifyZeroInteractions(context);
+  }
+
+  @Test
+  public void should_count_evaluations_if_statistics_are_enabled() {
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null), RulePriority.MAJOR);
+    profile.activateRule(Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_COMMENT_DENSITY, null), RulePriority.MAJOR);
+    CheckStatistics statistics = new CheckStatistics("dispatch");
+    DispatchTable table = DispatchTable.create(AnnotationCheckFactory.create(profile, REPO_KEY, CommonRulesConstants.CLASSES), statistics);
+    when(context.getMeasure(CoreMetrics.DUPLICATED_BLOCKS)).thenReturn(new Measure(CoreMetrics.DUPLICATED_BLOCKS, 3.0));
+
+    MeasureSnapshot measures = new MeasureSnapshot();
+    DispatchTable.Lane lane = table.lane(false);
+    for (int file = 0; file < 2; file++) {
+      lane.load(measures, context);
+      for (int i = 0; i < lane.size(); i++) {
+        lane.evaluate(i, measures);
+      }
+    }
+
+    int slot = CheckStatistics.slotOf(DuplicatedBlocksCheck.class);
+    assertThat(statistics.getInvocations()[slot]).isEqualTo(2L);
+    assertThat(statistics.getViolations()[slot]).isEqualTo(2L);
+    assertThat(statistics.getRemediationCosts()[slot]).isEqualTo(6.0);
+    // not evaluated without input measures
+    assertThat(statistics.getInvocations()[CheckStatistics.slotOf(CommentDensityCheck.class)]).isEqualTo(0L);
+  }
+
+  @Test
+  public void should_fail_fast_on_invalid_parameters() {
+    Rule rule = Rule.create(REPO_KEY, CommonRulesRepository.RULE_INSUFFICIENT_COMMENT_DENSITY, null);
+    rule.createParameter(CommonRulesRepository.PARAM_MIN_COMMENT_DENSITY);
+    profile.activateRule(rule, RulePriority.MAJOR).setParameter(CommonRulesRepository.PARAM_MIN_COMMENT_DENSITY, "100");
+
+    try {
+      create();
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("100.0 is not a valid value for minimum required comment density");
+    }
+  }
+
+  private DispatchTable create() {
+    return DispatchTable.create(AnnotationCheckFactory.create(profile, REPO_KEY, CommonRulesConstants.CLASSES));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.engine;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.checks.AnnotationCheckFactory;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.resources.Project;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.rules.Violation;
+import org.sonar.commonrules.api.CommonRulesRepository;
+import org.sonar.commonrules.internal.CommonRulesConstants;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class ViolationLimitsTest {
+
+  private static final String REPO_KEY = CommonRulesConstants.REPO_KEY_PREFIX + "java";
+
+  DecoratorContext moduleContext = mock(DecoratorContext.class);
+  Project module = new Project("module");
+  Rule rule = Rule.create(REPO_KEY, CommonRulesRepository.RULE_DUPLICATED_BLOCKS, null);
+
+  @Test
+  public void should_accept_first_violations_and_summarize_the_others() {
+    when(moduleContext.getResource()).thenReturn(module);
+    ViolationLimits limits = ViolationLimits.create(new int[] {2});
+
+    // in decoration order, whatever their costs
+    assertThat(limits.accept(0, 3.0)).isTrue();
+    assertThat(limits.accept(0, 1.0)).isTrue();
+    assertThat(limits.accept(0, 5.0)).isFalse();
+    assertThat(limits.accept(0, 4.0)).isFalse();
+    limits.flush(dispatchTable(), moduleContext);
+
+    ArgumentCaptor<Violation> summary = ArgumentCaptor.forClass(Violation.class);
+    verify(moduleContext).saveViolation(summary.capture());
+    assertThat(summary.getValue().getResource()).isSameAs(module);
+    assertThat(summary.getValue().getRule()).isEqualTo(rule);
+    assertThat(summary.getValue().getCost()).isEqualTo(9.0);
+    assertThat(summary.getValue().getMessage()).isEqualTo("2 other files violate this rule, for a total remediation cost of 9.");
+  }
+
+  @Test
+  public void should_not_summarize_if_no_violation_is_truncated() {
+    ViolationLimits limits = ViolationLimits.create(new int[] {2});
+    assertThat(limits.accept(0, 1.0)).isTrue();
+
+    limits.flush(dispatchTable(), moduleContext);
+
+    verifyZeroInteractions(moduleContext);
+  }
+
+  @Test
+  public void should_reset_counters_for_next_module() {
+    DispatchTable dispatchTable = dispatchTable();
+    ViolationLimits limits = ViolationLimits.create(new int[] {1});
+    assertThat(limits.accept(0, 1.0)).isTrue();
+    assertThat(limits.accept(0, 2.0)).isFalse();
+    limits.flush(dispatchTable, moduleContext);
+    verify(moduleContext).saveViolation(any(Violation.class));
+
+    DecoratorContext nextModuleContext = mock(DecoratorContext.class);
+    assertThat(limits.accept(0, 3.0)).isTrue();
+    limits.flush(dispatchTable, nextModuleContext);
+    verifyZeroInteractions(nextModuleContext);
+  }
+
+  @Test
+  public void should_not_be_created_if_no_check_is_limited() {
+    assertThat(ViolationLimits.create(new int[] {0, 0})).isNull();
+    assertThat(ViolationLimits.create(new int[] {0, 3}).isLimited(1)).isTrue();
+    assertThat(ViolationLimits.create(new int[] {0, 3}).isLimited(0)).isFalse();
+  }
+
+  @Test
+  public void should_accept_all_violations_of_checks_that_are_not_limited() {
+    ViolationLimits limits = ViolationLimits.create(new int[] {0, 1});
+    for (int i = 0; i < 100; i++) {
+      assertThat(limits.accept(0, 1.0)).isTrue();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_if_maximum_is_negative() {
+    ViolationLimits.create(new int[] {-1});
+  }
+
+  private DispatchTable dispatchTable() {
+    RulesProfile profile = RulesProfile.create("profile", "java");
+    profile.activateRule(rule, RulePriority.MAJOR);
+    return DispatchTable.create(AnnotationCheckFactory.create(profile, REPO_KEY, CommonRulesConstants.CLASSES));
+  }
+}
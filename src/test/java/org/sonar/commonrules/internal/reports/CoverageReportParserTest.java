@@ -0,0 +1,140 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.junit.Test;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CoverageReportParserTest {
+
+  @Test
+  public void should_read_jacoco_report() throws Exception {
+    CoverageIndex index = parse("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+      + "<!DOCTYPE report PUBLIC \"-//JACOCO//DTD Report 1.1//EN\" \"report.dtd\">"
+      + "<report name=\"module\"><sessioninfo id=\"s\" start=\"1\" dump=\"2\"/>"
+      + "<package name=\"org/sonar\"><class name=\"org/sonar/Foo\" sourcefilename=\"Foo.java\"><method name=\"foo\" desc=\"()V\" line=\"3\">"
+      + "<counter type=\"LINE\" missed=\"0\" covered=\"1\"/></method></class>"
+      + "<sourcefile name=\"Foo.java\">"
+      + "<line nr=\"3\" mi=\"0\" ci=\"4\" mb=\"1\" cb=\"3\"/>"
+      + "<line nr=\"4\" mi=\"2\" ci=\"0\" mb=\"2\" cb=\"0\"/>"
+      + "<line nr=\"5\" mi=\"1\" ci=\"1\" mb=\"0\" cb=\"0\"/>"
+      + "<line nr=\"6\" mi=\"0\" ci=\"0\" mb=\"0\" cb=\"0\"/>"
+      + "<counter type=\"LINE\" missed=\"1\" covered=\"2\"/></sourcefile>"
+      + "</package>"
+      + "<package name=\"\"><sourcefile name=\"Bar.java\"><line nr=\"1\" mi=\"3\" ci=\"0\" mb=\"0\" cb=\"0\"/></sourcefile></package>"
+      + "</report>");
+
+    MeasureSnapshot foo = complete(index, "org.sonar.Foo");
+    assertThat(foo.get(CheckMetric.LINES_TO_COVER)).isEqualTo(3.0);
+    assertThat(foo.get(CheckMetric.UNCOVERED_LINES)).isEqualTo(1.0);
+    assertThat(foo.get(CheckMetric.CONDITIONS_TO_COVER)).isEqualTo(6.0);
+    assertThat(foo.get(CheckMetric.UNCOVERED_CONDITIONS)).isEqualTo(3.0);
+    assertThat(foo.get(CheckMetric.BRANCH_COVERAGE)).isEqualTo(50.0);
+
+    MeasureSnapshot bar = complete(index, "Bar");
+    assertThat(bar.get(CheckMetric.LINE_COVERAGE)).isEqualTo(0.0);
+    assertThat(bar.has(CheckMetric.BRANCH_COVERAGE)).isFalse();
+  }
+
+  @Test
+  public void should_read_cobertura_report() throws Exception {
+    CoverageIndex index = parse("<?xml version=\"1.0\"?>"
+      + "<!DOCTYPE coverage SYSTEM \"http://cobertura.sourceforge.net/xml/coverage-04.dtd\">"
+      + "<coverage line-rate=\"0.5\"><sources><source>src/main/java</source></sources><packages><package name=\"org.sonar\"><classes>"
+      + "<class name=\"org.sonar.Foo\" filename=\"org/sonar/Foo.java\"><methods><method name=\"foo\"><lines>"
+      + "<line number=\"3\" hits=\"2\" branch=\"true\" condition-coverage=\"50% (1/2)\"/></lines></method></methods>"
+      + "<lines><line number=\"3\" hits=\"2\" branch=\"true\" condition-coverage=\"50% (1/2)\"/><line number=\"4\" hits=\"0\" branch=\"false\"/></lines>"
+      + "</class>"
+      + "<class name=\"org.sonar.Foo$Inner\" filename=\"org\\sonar\\Foo.java\"><lines><line number=\"10\" hits=\"1\"/></lines></class>"
+      + "</classes></package></packages></coverage>");
+
+    MeasureSnapshot foo = complete(index, "org/sonar/Foo.java");
+    assertThat(foo.get(CheckMetric.LINES_TO_COVER)).isEqualTo(3.0);
+    assertThat(foo.get(CheckMetric.UNCOVERED_LINES)).isEqualTo(1.0);
+    assertThat(foo.get(CheckMetric.CONDITIONS_TO_COVER)).isEqualTo(2.0);
+    assertThat(foo.get(CheckMetric.UNCOVERED_CONDITIONS)).isEqualTo(1.0);
+  }
+
+  @Test
+  public void should_not_mix_up_files_differing_by_extension() throws Exception {
+    CoverageIndex index = parse("<coverage><packages><package name=\"src\"><classes>"
+      + "<class name=\"foo\" filename=\"src/foo.c\"><lines><line number=\"1\" hits=\"0\"/><line number=\"2\" hits=\"1\"/></lines></class>"
+      + "<class name=\"foo\" filename=\"src/foo.h\"><lines><line number=\"1\" hits=\"1\"/></lines></class>"
+      + "</classes></package></packages></coverage>");
+
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(complete(index, "src/foo.c").get(CheckMetric.LINE_COVERAGE)).isEqualTo(50.0);
+    assertThat(complete(index, "src/foo.h").get(CheckMetric.LINE_COVERAGE)).isEqualTo(100.0);
+    assertThat(complete(index, "src/foo").has(CheckMetric.LINE_COVERAGE)).isFalse();
+    // ambiguous class name
+    assertThat(complete(index, "src.foo").has(CheckMetric.LINE_COVERAGE)).isFalse();
+  }
+
+  @Test
+  public void should_stream_large_reports() throws Exception {
+    // 2 million lines, about 80 MB, are never held in memory
+    final byte[] line = "<line nr=\"1\" mi=\"0\" ci=\"1\" mb=\"0\" cb=\"0\"/>".getBytes();
+    InputStream lines = new InputStream() {
+      private long position = 0;
+
+      @Override
+      public int read() {
+        return position < 2000000L * line.length ? line[(int) (position++ % line.length)] : -1;
+      }
+    };
+    CoverageIndex.Builder builder = new CoverageIndex.Builder();
+
+    CoverageReportParser.parse(new SequenceInputStream(Collections.enumeration(Arrays.asList(
+      stream("<report><package name=\"a\"><sourcefile name=\"A.java\">"), lines, stream("</sourcefile></package></report>")))), builder);
+
+    assertThat(complete(builder.build(), "a.A").get(CheckMetric.LINES_TO_COVER)).isEqualTo(2000000.0);
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void should_fail_if_unknown_report() throws Exception {
+    parse("<testsuite/>");
+  }
+
+  private static CoverageIndex parse(String xml) throws XMLStreamException {
+    CoverageIndex.Builder builder = new CoverageIndex.Builder();
+    CoverageReportParser.parse(stream(xml), builder);
+    return builder.build();
+  }
+
+  private static MeasureSnapshot complete(CoverageIndex index, String key) {
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete(key, measures);
+    return measures;
+  }
+
+  private static InputStream stream(String xml) {
+    return new ByteArrayInputStream(xml.getBytes());
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CoverageReportsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_read_reports_in_parallel() throws Exception {
+    List<File> reports = new ArrayList<File>();
+    for (int i = 0; i < 50; i++) {
+      File report = temp.newFile("jacoco" + i + ".xml");
+      FileUtils.write(report, "<report><package name=\"org/sonar\"><sourcefile name=\"Foo" + i + ".java\">"
+        + "<line nr=\"1\" mi=\"0\" ci=\"1\" mb=\"0\" cb=\"0\"/><line nr=\"2\" mi=\"1\" ci=\"0\" mb=\"0\" cb=\"0\"/></sourcefile></package></report>");
+      reports.add(report);
+    }
+    File invalid = temp.newFile("invalid.xml");
+    FileUtils.write(invalid, "<report><package>");
+    reports.add(invalid);
+    reports.add(new File(temp.getRoot(), "missing.xml"));
+
+    CoverageIndex index = CoverageReports.read(reports, new ReaderPool(4));
+
+    assertThat(index.size()).isEqualTo(50);
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete("org.sonar.Foo49", measures);
+    assertThat(measures.get(CheckMetric.LINE_COVERAGE)).isEqualTo(50.0);
+  }
+
+  @Test
+  public void should_keep_best_coverage_of_file_in_several_reports() throws Exception {
+    File first = temp.newFile("first.xml");
+    File second = temp.newFile("second.xml");
+    FileUtils.write(first, "<report><package name=\"a\"><sourcefile name=\"A.java\"><line nr=\"1\" mi=\"1\" ci=\"0\" mb=\"1\" cb=\"1\"/>"
+      + "<line nr=\"2\" mi=\"0\" ci=\"1\" mb=\"0\" cb=\"0\"/></sourcefile></package></report>");
+    FileUtils.write(second, "<report><package name=\"a\"><sourcefile name=\"A.java\"><line nr=\"1\" mi=\"0\" ci=\"1\" mb=\"2\" cb=\"0\"/>"
+      + "<line nr=\"2\" mi=\"0\" ci=\"1\" mb=\"0\" cb=\"0\"/></sourcefile></package></report>");
+
+    CoverageIndex index = CoverageReports.read(Arrays.asList(first, second), new ReaderPool(1));
+
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete("a/A.java", measures);
+    assertThat(measures.get(CheckMetric.LINE_COVERAGE)).isEqualTo(100.0);
+    assertThat(measures.get(CheckMetric.BRANCH_COVERAGE)).isEqualTo(50.0);
+  }
+
+  @Test
+  public void should_not_override_measures() throws Exception {
+    File report = temp.newFile("report.xml");
+    FileUtils.write(report, "<report><package name=\"a\"><sourcefile name=\"A.java\"><line nr=\"1\" mi=\"1\" ci=\"0\" mb=\"0\" cb=\"0\"/>"
+      + "</sourcefile></package></report>");
+    CoverageIndex index = CoverageReports.read(Arrays.asList(report), new ReaderPool(1));
+
+    MeasureSnapshot measures = new MeasureSnapshot().set(CheckMetric.LINE_COVERAGE, 80.0);
+    index.complete("a.A", measures);
+
+    assertThat(measures.get(CheckMetric.LINE_COVERAGE)).isEqualTo(80.0);
+    assertThat(measures.has(CheckMetric.LINES_TO_COVER)).isFalse();
+  }
+}
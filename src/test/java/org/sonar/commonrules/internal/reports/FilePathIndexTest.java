@@ -0,0 +1,60 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FilePathIndexTest {
+
+  @Test
+  public void should_match_paths_exactly() {
+    FilePathIndex<String> index = new FilePathIndex<String>(ImmutableMap.of("src/foo.c", "c", "src/foo.h", "h", "Bar.js", "js"));
+
+    assertThat(index.get("src/foo.c")).isEqualTo("c");
+    assertThat(index.get("src/foo.h")).isEqualTo("h");
+    assertThat(index.get("Bar.js")).isEqualTo("js");
+    assertThat(index.get("src/foo")).isNull();
+    assertThat(index.get("src/foo.cpp")).isNull();
+  }
+
+  @Test
+  public void should_match_class_names_with_single_path() {
+    FilePathIndex<String> index = new FilePathIndex<String>(ImmutableMap.of("org/sonar/Foo.java", "foo", "org/sonar/Bar.java", "bar",
+      "org/sonar/Bar.groovy", "groovy", "Baz.java", "baz"));
+
+    assertThat(index.get("org.sonar.Foo")).isEqualTo("foo");
+    assertThat(index.get("[default].Baz")).isEqualTo("baz");
+    assertThat(index.get("Baz")).isEqualTo("baz");
+    // ambiguous
+    assertThat(index.get("org.sonar.Bar")).isNull();
+    assertThat(index.get("org.sonar.Unknown")).isNull();
+  }
+
+  @Test
+  public void should_normalize_paths() {
+    assertThat(FilePathIndex.pathKey("org\\sonar\\Foo.java")).isEqualTo("org/sonar/Foo.java");
+    assertThat(FilePathIndex.className("org/sonar/Foo.java")).isEqualTo("org.sonar.Foo");
+    assertThat(FilePathIndex.className("org.sonar/Foo")).isEqualTo("org.sonar.Foo");
+    assertThat(FilePathIndex.className("Foo.java")).isEqualTo("Foo");
+  }
+}
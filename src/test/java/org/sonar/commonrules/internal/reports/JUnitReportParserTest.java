@@ -0,0 +1,93 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.junit.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class JUnitReportParserTest {
+
+  @Test
+  public void should_index_failed_and_skipped_tests() throws Exception {
+    UnitTestIndex.Builder index = new UnitTestIndex.Builder();
+
+    JUnitReportParser.parse(stream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<testsuite name=\"org.sonar.FooTest\" tests=\"5\" failures=\"1\" errors=\"1\" skipped=\"1\">"
+      + "<properties><property name=\"java.version\" value=\"1.6\"/></properties>"
+      + "<testcase classname=\"org.sonar.FooTest\" name=\"success\" time=\"0.01\"/>"
+      + "<testcase classname=\"org.sonar.FooTest\" name=\"failure\"><failure message=\"expected\">stack trace</failure></testcase>"
+      + "<testcase classname=\"org.sonar.FooTest\" name=\"error\"><error type=\"java.lang.NullPointerException\"/><system-out>out</system-out></testcase>"
+      + "<testcase classname=\"org.sonar.FooTest$Nested\" name=\"skipped\"><skipped/></testcase>"
+      + "<testcase name=\"inSuite\"><failure/></testcase>"
+      + "<system-out><![CDATA[output]]></system-out>"
+      + "</testsuite>"), index);
+
+    TestClassResults results = index.build().get("org.sonar.FooTest");
+    assertThat(results.failedTests()).containsExactly("failure", "error", "inSuite");
+    assertThat(results.skippedTests()).containsExactly("skipped");
+  }
+
+  @Test
+  public void should_not_index_successful_classes() throws Exception {
+    UnitTestIndex.Builder index = new UnitTestIndex.Builder();
+
+    JUnitReportParser.parse(stream("<testsuite name=\"org.sonar.BarTest\"><testcase classname=\"org.sonar.BarTest\" name=\"success\"/></testsuite>"), index);
+
+    assertThat(index.build().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void should_stream_large_outputs() throws Exception {
+    // 64 MB of output between two test cases is streamed, not accumulated
+    InputStream output = new InputStream() {
+      private int remaining = 64 * 1024 * 1024;
+
+      @Override
+      public int read() {
+        return remaining-- > 0 ? 'x' : -1;
+      }
+    };
+    InputStream report = new SequenceInputStream(Collections.enumeration(java.util.Arrays.asList(
+      stream("<testsuite name=\"org.sonar.FooTest\"><testcase name=\"first\"><failure/><system-out>"),
+      output,
+      stream("</system-out></testcase><testcase name=\"second\"><skipped/></testcase></testsuite>"))));
+    UnitTestIndex.Builder index = new UnitTestIndex.Builder();
+
+    JUnitReportParser.parse(report, index);
+
+    assertThat(index.build().get("org.sonar.FooTest").failedTests()).containsExactly("first");
+  }
+
+  @Test(expected = XMLStreamException.class)
+  public void should_fail_if_invalid_report() throws Exception {
+    JUnitReportParser.parse(stream("<testsuite><testcase"), new UnitTestIndex.Builder());
+  }
+
+  private static InputStream stream(String xml) {
+    return new ByteArrayInputStream(xml.getBytes());
+  }
+}
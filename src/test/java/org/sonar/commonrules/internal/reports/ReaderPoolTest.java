@@ -0,0 +1,83 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ReaderPoolTest {
+
+  private static final ReaderPool.FileParser<String> THREAD_NAME = new ReaderPool.FileParser<String>() {
+    public String parse(File file) {
+      return file.getName() + "@" + Thread.currentThread().getName();
+    }
+  };
+
+  @Test
+  public void should_return_results_in_order_of_files() {
+    List<File> files = new ArrayList<File>();
+    for (int i = 0; i < 100; i++) {
+      files.add(new File("file" + i));
+    }
+
+    List<String> results = new ReaderPool(4).parseAll(files, THREAD_NAME);
+
+    assertThat(results).hasSize(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(results.get(i)).startsWith("file" + i + "@common-rules-");
+    }
+  }
+
+  @Test
+  public void should_read_on_calling_thread_if_no_parallelism() {
+    String thread = Thread.currentThread().getName();
+
+    assertThat(new ReaderPool(1).parseAll(Arrays.asList(new File("a"), new File("b")), THREAD_NAME)).containsExactly("a@" + thread, "b@" + thread);
+    assertThat(new ReaderPool(4).parseAll(Arrays.asList(new File("a")), THREAD_NAME)).containsExactly("a@" + thread);
+  }
+
+  @Test
+  public void should_propagate_failures_of_parsers() {
+    ReaderPool.FileParser<String> parser = new ReaderPool.FileParser<String>() {
+      public String parse(File file) {
+        throw new IllegalStateException("Fail to parse " + file.getName());
+      }
+    };
+
+    try {
+      new ReaderPool(2).parseAll(Arrays.asList(new File("a"), new File("b")), parser);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("Fail to parse a");
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_if_parallelism_is_not_positive() {
+    new ReaderPool(0);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.reports;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.resources.InputFileUtils;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class UnitTestReportsTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_read_reports_in_parallel() throws Exception {
+    File directory = temp.newFolder("surefire-reports");
+    for (int i = 0; i < 200; i++) {
+      FileUtils.write(new File(directory, "TEST-org.sonar.Foo" + i + "Test.xml"), "<testsuite name=\"org.sonar.Foo" + i + "Test\">"
+        + "<testcase name=\"ok\"/>" + (i % 2 == 0 ? "<testcase name=\"ko\"><failure/></testcase>" : "") + "</testsuite>");
+    }
+    // not reports
+    FileUtils.write(new File(directory, "org.sonar.Foo0Test.txt"), "Tests run: 2, Failures: 1");
+    FileUtils.write(new File(directory, "TEST-invalid.xml"), "<testsuite>");
+
+    UnitTestIndex index = UnitTestReports.read(Arrays.asList(directory, new File(temp.getRoot(), "missing")), new ReaderPool(4));
+
+    assertThat(index.size()).isEqualTo(100);
+    assertThat(index.get("org.sonar.Foo0Test").failedTests()).containsExactly("ko");
+    assertThat(index.get("org.sonar.Foo1Test")).isNull();
+    assertThat(index.get("org/sonar/Foo2Test.java").failedTests()).containsExactly("ko");
+  }
+
+  @Test
+  public void should_merge_reports_of_same_class() throws Exception {
+    File first = temp.newFolder("first");
+    File second = temp.newFolder("second");
+    FileUtils.write(new File(first, "TEST-a.xml"), "<testsuite name=\"org.sonar.FooTest\"><testcase name=\"a\"><failure/></testcase></testsuite>");
+    FileUtils.write(new File(second, "TEST-a.xml"), "<testsuite name=\"org.sonar.FooTest\"><testcase name=\"a\"><error/></testcase>"
+      + "<testcase name=\"b\"><skipped/></testcase></testsuite>");
+
+    UnitTestIndex index = UnitTestReports.read(Arrays.asList(first, second), new ReaderPool(1));
+
+    assertThat(index.get("org.sonar.FooTest").failedTests()).containsExactly("a");
+    assertThat(index.get("org.sonar.FooTest").skippedTests()).containsExactly("b");
+  }
+
+  @Test
+  public void should_not_match_test_files_having_same_class_name() throws Exception {
+    File directory = temp.newFolder("reports");
+    FileUtils.write(new File(directory, "TEST-a.xml"), "<testsuite name=\"org.sonar.FooTest\"><testcase name=\"a\"><failure/></testcase></testsuite>");
+    File sources = temp.newFolder("test");
+
+    UnitTestIndex index = UnitTestReports.read(Arrays.asList(directory), new ReaderPool(1))
+      .withTestFiles(Arrays.asList(InputFileUtils.create(sources, "org/sonar/FooTest.c"), InputFileUtils.create(sources, "org/sonar/FooTest.h"),
+        InputFileUtils.create(sources, "org/sonar/BarTest.c")));
+
+    assertThat(index.get("org/sonar/FooTest.c")).isNull();
+    assertThat(index.get("org/sonar/FooTest.h")).isNull();
+    assertThat(index.get("org.sonar.FooTest").failedTests()).containsExactly("a");
+  }
+}
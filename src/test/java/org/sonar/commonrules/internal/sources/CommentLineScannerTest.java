@@ -0,0 +1,132 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.resources.InputFile;
+import org.sonar.api.resources.InputFileUtils;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+import org.sonar.commonrules.internal.reports.ReaderPool;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CommentLineScannerTest {
+
+  private static final CommentSyntax C_LIKE = CommentSyntax.create(new String[] {"//"}, new String[] {"/* */"});
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_scan_files_in_parallel() throws Exception {
+    List<InputFile> files = new ArrayList<InputFile>();
+    for (int i = 0; i < 50; i++) {
+      files.add(newFile("org/sonar/Foo" + i + ".js", "// comment\nvar i = " + i + ";\n"));
+    }
+    files.add(InputFileUtils.create(temp.getRoot(), "org/sonar/Missing.js"));
+
+    CommentLinesIndex index = CommentLineScanner.scan(files, C_LIKE, UTF8, new ReaderPool(4));
+
+    assertThat(index.size()).isEqualTo(50);
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete("org/sonar/Foo49.js", measures);
+    assertThat(measures.get(CheckMetric.NCLOC)).isEqualTo(1.0);
+    assertThat(measures.get(CheckMetric.COMMENT_LINES)).isEqualTo(1.0);
+    assertThat(measures.get(CheckMetric.COMMENT_LINES_DENSITY)).isEqualTo(50.0);
+  }
+
+  @Test
+  public void should_map_large_files() throws Exception {
+    StringBuilder source = new StringBuilder();
+    while (source.length() < SourceBuffers.MAPPING_THRESHOLD) {
+      source.append("// comment\ni++;\n");
+    }
+    File file = newFile("Large.js", source.toString()).getFile();
+
+    int[] lines = CommentLineScanner.scan(file, C_LIKE);
+
+    assertThat(lines[0]).isEqualTo(source.length() / 16);
+    assertThat(lines[1]).isEqualTo(source.length() / 16);
+  }
+
+  @Test
+  public void should_reuse_buffer_of_small_files() throws Exception {
+    File first = newFile("First.js", "a;\nb;\nc;\n// comment\n").getFile();
+    File second = newFile("Second.js", "a;\n").getFile();
+
+    assertThat(CommentLineScanner.scan(first, C_LIKE)).isEqualTo(new int[] {3, 1});
+    assertThat(CommentLineScanner.scan(second, C_LIKE)).isEqualTo(new int[] {1, 0});
+  }
+
+  @Test
+  public void should_ignore_incompatible_charset() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("Foo.js", "// comment\n"));
+
+    CommentLinesIndex index = CommentLineScanner.scan(files, C_LIKE, Charset.forName("UTF-16"), new ReaderPool(1));
+
+    assertThat(index.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void should_not_override_comment_density() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", "// comment\n"), newFile("a/Bar.js", "// comment\nbar();\n"));
+    CommentLinesIndex index = CommentLineScanner.scan(files, C_LIKE, UTF8, new ReaderPool(1));
+
+    MeasureSnapshot measures = new MeasureSnapshot().set(CheckMetric.COMMENT_LINES_DENSITY, 10.0);
+    index.complete("a/Foo.js", measures);
+    assertThat(measures.get(CheckMetric.COMMENT_LINES_DENSITY)).isEqualTo(10.0);
+    assertThat(measures.has(CheckMetric.COMMENT_LINES)).isFalse();
+
+    measures = new MeasureSnapshot().set(CheckMetric.NCLOC, 3.0);
+    index.complete("a/Bar.js", measures);
+    assertThat(measures.get(CheckMetric.NCLOC)).isEqualTo(3.0);
+    assertThat(measures.get(CheckMetric.COMMENT_LINES)).isEqualTo(1.0);
+    assertThat(measures.get(CheckMetric.COMMENT_LINES_DENSITY)).isEqualTo(50.0);
+  }
+
+  @Test
+  public void should_not_mix_up_files_differing_by_extension() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("src/foo.c", "// comment\nfoo();\n"), newFile("src/foo.h", "void foo();\n"));
+    CommentLinesIndex index = CommentLineScanner.scan(files, C_LIKE, UTF8, new ReaderPool(1));
+
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete("src/foo.c", measures);
+    assertThat(measures.get(CheckMetric.COMMENT_LINES_DENSITY)).isEqualTo(50.0);
+    measures = new MeasureSnapshot();
+    index.complete("src/foo.h", measures);
+    assertThat(measures.get(CheckMetric.COMMENT_LINES_DENSITY)).isEqualTo(0.0);
+  }
+
+  private InputFile newFile(String relativePath, String source) throws Exception {
+    FileUtils.write(new File(temp.getRoot(), relativePath), source, "UTF-8");
+    return InputFileUtils.create(temp.getRoot(), relativePath);
+  }
+}
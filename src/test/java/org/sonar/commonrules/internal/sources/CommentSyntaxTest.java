@@ -0,0 +1,71 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CommentSyntaxTest {
+
+  @Test
+  public void should_create_syntax() {
+    CommentSyntax syntax = CommentSyntax.create(new String[] {"//", " #"}, new String[] {"/* */", "<!-- -->"});
+
+    assertThat(syntax.isEmpty()).isFalse();
+    assertThat(syntax.lineComments).hasSize(2);
+    assertThat(new String(syntax.lineComments[1])).isEqualTo("#");
+    assertThat(new String(syntax.blockCommentEnds[1])).isEqualTo("-->");
+    assertThat(syntax.firstBytes['/']).isTrue();
+    assertThat(syntax.firstBytes['<']).isTrue();
+    assertThat(syntax.firstBytes['*']).isFalse();
+    assertThat(syntax.stringDelimiters['"']).isTrue();
+    assertThat(syntax.stringDelimiters['\'']).isFalse();
+  }
+
+  @Test
+  public void should_create_syntax_with_string_delimiters() {
+    CommentSyntax syntax = CommentSyntax.create(new String[] {"#"}, new String[0], new String[] {"'", " ` "});
+
+    assertThat(syntax.stringDelimiters['\'']).isTrue();
+    assertThat(syntax.stringDelimiters['`']).isTrue();
+    assertThat(syntax.stringDelimiters['"']).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_string_delimiter_is_not_single_character() {
+    CommentSyntax.create(new String[] {"#"}, new String[0], new String[] {"\"\"\""});
+  }
+
+  @Test
+  public void should_be_empty_without_delimiters() {
+    assertThat(CommentSyntax.create(new String[0], new String[0]).isEmpty()).isTrue();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_block_comment_has_no_end() {
+    CommentSyntax.create(new String[0], new String[] {"/*"});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_delimiter_is_not_ascii() {
+    CommentSyntax.create(new String[] {"§"}, new String[0]);
+  }
+}
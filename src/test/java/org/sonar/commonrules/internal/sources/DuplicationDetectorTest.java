@@ -0,0 +1,130 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.resources.InputFile;
+import org.sonar.api.resources.InputFileUtils;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+import org.sonar.commonrules.internal.reports.ReaderPool;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DuplicationDetectorTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_detect_duplications_across_files() throws Exception {
+    List<InputFile> files = new ArrayList<InputFile>();
+    files.add(newFile("a/Foo.js", "foo();\n" + block("x") + "bar();\n" + block("y")));
+    files.add(newFile("a/Bar.js", block("x") + "baz();\n" + block("y")));
+    files.add(newFile("a/Baz.js", block("z")));
+    files.add(InputFileUtils.create(temp.getRoot(), "a/Missing.js"));
+
+    DuplicatedBlocksIndex index = DuplicationDetector.detect(files, 5, UTF8, new ReaderPool(4));
+
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(blocks(index, "a/Foo.js")).isEqualTo(2.0);
+    assertThat(blocks(index, "a.Bar")).isEqualTo(2.0);
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete("a/Baz.js", measures);
+    assertThat(measures.has(CheckMetric.DUPLICATED_BLOCKS)).isFalse();
+  }
+
+  @Test
+  public void should_not_mix_up_files_differing_by_extension() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("src/foo.c", block("x") + "foo();\n" + block("y")), newFile("src/foo.h", block("x")),
+      newFile("src/bar.c", block("y")));
+
+    DuplicatedBlocksIndex index = DuplicationDetector.detect(files, 5, UTF8, new ReaderPool(1));
+
+    assertThat(index.size()).isEqualTo(3);
+    assertThat(blocks(index, "src/foo.c")).isEqualTo(2.0);
+    assertThat(blocks(index, "src/foo.h")).isEqualTo(1.0);
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete("src.foo", measures);
+    assertThat(measures.has(CheckMetric.DUPLICATED_BLOCKS)).isFalse();
+  }
+
+  @Test
+  public void should_detect_duplications_in_same_file() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("Foo.js", block("x") + "\n  }\n" + block("x")));
+
+    DuplicatedBlocksIndex index = DuplicationDetector.detect(files, 5, UTF8, new ReaderPool(1));
+
+    assertThat(blocks(index, "Foo.js")).isEqualTo(2.0);
+  }
+
+  @Test
+  public void should_not_override_measure() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", block("x")), newFile("a/Bar.js", block("x")));
+    DuplicatedBlocksIndex index = DuplicationDetector.detect(files, 5, UTF8, new ReaderPool(1));
+
+    MeasureSnapshot measures = new MeasureSnapshot().set(CheckMetric.DUPLICATED_BLOCKS, 0.0);
+    index.complete("a/Foo.js", measures);
+
+    assertThat(measures.get(CheckMetric.DUPLICATED_BLOCKS)).isEqualTo(0.0);
+  }
+
+  @Test
+  public void should_ignore_incompatible_charset() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", block("x")), newFile("a/Bar.js", block("x")));
+
+    assertThat(DuplicationDetector.detect(files, 5, Charset.forName("UTF-16"), new ReaderPool(1)).isEmpty()).isTrue();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_if_minimum_lines_not_positive() {
+    DuplicationDetector.detect(new ArrayList<InputFile>(), 0, UTF8, new ReaderPool(1));
+  }
+
+  private static String block(String name) {
+    StringBuilder block = new StringBuilder();
+    for (int i = 0; i < 6; i++) {
+      block.append("  ").append(name).append(i).append(" = ").append(i).append(";\n");
+    }
+    return block.toString();
+  }
+
+  private static double blocks(DuplicatedBlocksIndex index, String key) {
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete(key, measures);
+    return measures.get(CheckMetric.DUPLICATED_BLOCKS);
+  }
+
+  private InputFile newFile(String relativePath, String source) throws Exception {
+    FileUtils.write(new File(temp.getRoot(), relativePath), source, "UTF-8");
+    return InputFileUtils.create(temp.getRoot(), relativePath);
+  }
+}
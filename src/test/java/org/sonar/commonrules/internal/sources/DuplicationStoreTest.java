@@ -0,0 +1,221 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.resources.InputFile;
+import org.sonar.api.resources.InputFileUtils;
+import org.sonar.commonrules.internal.checks.CheckMetric;
+import org.sonar.commonrules.internal.checks.MeasureSnapshot;
+import org.sonar.commonrules.internal.reports.ReaderPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DuplicationStoreTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File sources;
+  private File index;
+  private ReaderPool pool = new ReaderPool(1);
+
+  @Before
+  public void setUp() {
+    sources = new File(temp.getRoot(), "src");
+    index = new File(temp.getRoot(), "duplications");
+  }
+
+  @Test
+  public void should_detect_duplications_and_write_index() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", "foo();\n" + block("x")), newFile("a/Bar.js", block("x") + block("y")),
+      newFile("a/Baz.js", block("z")));
+
+    DuplicatedBlocksIndex blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    assertThat(blocks.size()).isEqualTo(2);
+    assertThat(blocks(blocks, "a/Foo.js")).isEqualTo(1.0);
+    assertThat(blocks(blocks, "a/Bar.js")).isEqualTo(1.0);
+    assertThat(index).exists();
+    assertThat(DuplicationStore.load(index, 5).indexedFiles()).isEqualTo(3);
+  }
+
+  @Test
+  public void should_not_read_unchanged_files() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", block("x")), newFile("a/Bar.js", block("x")));
+    DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    // same size and same modification time, so the file is not read again
+    File foo = files.get(0).getFile();
+    long lastModified = foo.lastModified();
+    FileUtils.write(foo, block("w"));
+    foo.setLastModified(lastModified);
+    DuplicatedBlocksIndex blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    assertThat(blocks(blocks, "a/Foo.js")).isEqualTo(1.0);
+    assertThat(blocks(blocks, "a/Bar.js")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void should_drop_hashes_of_modified_and_deleted_files() throws Exception {
+    List<InputFile> files = new ArrayList<InputFile>(Arrays.asList(newFile("a/Foo.js", block("x") + block("y")),
+      newFile("a/Bar.js", block("x")), newFile("a/Baz.js", block("y"))));
+    DuplicatedBlocksIndex blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+    assertThat(blocks(blocks, "a/Foo.js")).isEqualTo(2.0);
+
+    // Bar does not duplicate Foo anymore, Baz is deleted
+    File bar = files.get(1).getFile();
+    FileUtils.write(bar, block("z") + "bar();\n");
+    bar.setLastModified(bar.lastModified() + 2000L);
+    files.remove(2);
+    blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    assertThat(blocks.isEmpty()).isTrue();
+    assertThat(DuplicationStore.load(index, 5).indexedFiles()).isEqualTo(2);
+
+    // a new file duplicates the unchanged file Foo
+    files.add(newFile("a/Qix.js", block("y")));
+    blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    assertThat(blocks(blocks, "a/Foo.js")).isEqualTo(1.0);
+    assertThat(blocks(blocks, "a/Qix.js")).isEqualTo(1.0);
+    assertThat(blocks(blocks, "a/Bar.js")).isEqualTo(0.0);
+  }
+
+  @Test
+  public void should_ignore_index_of_other_settings() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", block("x")), newFile("a/Bar.js", block("x")));
+    DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    assertThat(DuplicationStore.load(index, 6).indexedFiles()).isEqualTo(0);
+    assertThat(blocks(DuplicationStore.load(index, 7).update(files, UTF8, pool), "a/Foo.js")).isEqualTo(0.0);
+  }
+
+  @Test
+  public void should_ignore_corrupted_index() throws Exception {
+    FileUtils.write(index, "corrupted");
+    assertThat(DuplicationStore.load(index, 5).indexedFiles()).isEqualTo(0);
+
+    // truncated
+    FileUtils.writeByteArrayToFile(index, new byte[] {0x43, 0x52, 0x44, 0x50, 0, 0, 0, 1, 0, 0, 0, 5, 0, 0, 0, 1});
+    assertThat(DuplicationStore.load(index, 5).indexedFiles()).isEqualTo(0);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(0x43524450);
+    output.writeInt(1);
+    output.writeInt(5);
+    output.writeInt(2);
+    for (int i = 0; i < 2; i++) {
+      output.writeUTF("a/Foo.js");
+      output.writeLong(10L);
+      output.writeLong(20L);
+      output.writeInt(0);
+    }
+    FileUtils.writeByteArrayToFile(index, bytes.toByteArray());
+    assertThat(DuplicationStore.load(index, 5).indexedFiles()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_replace_index() throws Exception {
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", block("x")), newFile("a/Bar.js", block("x")));
+    DuplicationStore.load(index, 5).update(files, UTF8, pool);
+    long firstSize = index.length();
+
+    File bar = files.get(1).getFile();
+    FileUtils.write(bar, block("y") + block("z"));
+    bar.setLastModified(bar.lastModified() + 2000L);
+    DuplicatedBlocksIndex blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    assertThat(blocks.isEmpty()).isTrue();
+    assertThat(index.length()).isGreaterThan(firstSize);
+    assertThat(new File(temp.getRoot(), "duplications.tmp")).doesNotExist();
+    assertThat(DuplicationStore.load(index, 5).indexedFiles()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_index_first_of_files_having_same_path() throws Exception {
+    File generated = new File(temp.getRoot(), "generated");
+    FileUtils.write(new File(generated, "a/Foo.js"), block("x"));
+    InputFile duplicatedPath = InputFileUtils.create(generated, "a/Foo.js");
+    List<InputFile> files = Arrays.asList(newFile("a/Foo.js", block("x")), duplicatedPath, newFile("a/Bar.js", block("y")));
+
+    for (int i = 0; i < 3; i++) {
+      duplicatedPath.getFile().setLastModified(duplicatedPath.getFile().lastModified() + 2000L);
+      DuplicatedBlocksIndex blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+      // the occurrences of the ignored file are not counted
+      assertThat(blocks.isEmpty()).isTrue();
+      assertThat(DuplicationStore.load(index, 5).indexedFiles()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void should_index_many_files() throws Exception {
+    List<InputFile> files = new ArrayList<InputFile>();
+    for (int i = 0; i < 200; i++) {
+      files.add(newFile("a/Foo" + i + ".js", block("x" + i) + block("shared" + i % 10)));
+    }
+    DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    File modified = files.get(0).getFile();
+    FileUtils.write(modified, block("x0"));
+    modified.setLastModified(modified.lastModified() + 2000L);
+    DuplicatedBlocksIndex blocks = DuplicationStore.load(index, 5).update(files, UTF8, pool);
+
+    assertThat(blocks.size()).isEqualTo(199);
+    assertThat(blocks(blocks, "a/Foo0.js")).isEqualTo(0.0);
+    assertThat(blocks(blocks, "a/Foo10.js")).isEqualTo(1.0);
+    assertThat(blocks(blocks, "a/Foo199.js")).isEqualTo(1.0);
+  }
+
+  private static String block(String name) {
+    StringBuilder block = new StringBuilder();
+    for (int i = 0; i < 6; i++) {
+      block.append("  ").append(name).append('_').append(i).append(" = ").append(i).append(";\n");
+    }
+    return block.toString();
+  }
+
+  private static double blocks(DuplicatedBlocksIndex index, String key) {
+    MeasureSnapshot measures = new MeasureSnapshot();
+    index.complete(key, measures);
+    return measures.get(CheckMetric.DUPLICATED_BLOCKS);
+  }
+
+  private InputFile newFile(String relativePath, String source) throws Exception {
+    FileUtils.write(new File(sources, relativePath), source, "UTF-8");
+    return InputFileUtils.create(sources, relativePath);
+  }
+}
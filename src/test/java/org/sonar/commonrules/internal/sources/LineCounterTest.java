@@ -0,0 +1,129 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LineCounterTest {
+
+  private static final CommentSyntax C_LIKE = CommentSyntax.create(new String[] {"//"}, new String[] {"/* */"});
+
+  @Test
+  public void should_count_lines_of_code_and_comment_lines() {
+    LineCounter counter = count(C_LIKE, "/**\n * Foo.\n */\nclass Foo {\n\n  int i; // counter\n}");
+
+    assertThat(counter.linesOfCode()).isEqualTo(3);
+    assertThat(counter.commentLines()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_count_comments_without_letters_or_digits() {
+    LineCounter counter = count(C_LIKE, "//\n// ----\n/*\n *\n */\n//x");
+
+    assertThat(counter.linesOfCode()).isEqualTo(0);
+    assertThat(counter.commentLines()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_count_non_ascii_comments() throws Exception {
+    LineCounter counter = count(C_LIKE, new String("// éé\n".getBytes("UTF-8"), "ISO-8859-1"));
+
+    assertThat(counter.commentLines()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_ignore_delimiters_in_strings() {
+    LineCounter counter = count(C_LIKE, "s = \"// not a comment\";\nc = '\"'; t = \"\\\" /* still a string\";\ni++; // comment");
+
+    assertThat(counter.linesOfCode()).isEqualTo(3);
+    assertThat(counter.commentLines()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_not_start_strings_at_single_quotes_that_are_not_char_literals() {
+    // Rust lifetimes, Lisp quotes, Visual Basic style apostrophes
+    LineCounter counter = count(C_LIKE, "fn f<'a>(x: &'a str) {} // comment\n(quote 'x) /* block */\nc = '\\'' + 'é'; // comment");
+
+    assertThat(counter.linesOfCode()).isEqualTo(3);
+    assertThat(counter.commentLines()).isEqualTo(3);
+  }
+
+  @Test
+  public void should_support_single_quoted_strings_if_configured() {
+    CommentSyntax syntax = CommentSyntax.create(new String[] {"#"}, new String[0], new String[] {"'", "\""});
+    LineCounter counter = count(syntax, "s = 'not # a comment'\nt = \"nor # this\" # comment");
+
+    assertThat(counter.linesOfCode()).isEqualTo(2);
+    assertThat(counter.commentLines()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_end_strings_at_end_of_line() {
+    LineCounter counter = count(C_LIKE, "s = \"unterminated\n// comment");
+
+    assertThat(counter.linesOfCode()).isEqualTo(1);
+    assertThat(counter.commentLines()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_support_all_line_breaks() {
+    LineCounter counter = count(C_LIKE, "a;\r\n/* b\r c */ d;\re;\n");
+
+    assertThat(counter.linesOfCode()).isEqualTo(3);
+    assertThat(counter.commentLines()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_support_several_delimiters() {
+    CommentSyntax syntax = CommentSyntax.create(new String[] {"#", "--"}, new String[] {"<!-- -->", "{- -}"});
+    LineCounter counter = count(syntax, "# one\n-- two\n<!-- three --> x\n{- four\nfive -}\n- 1");
+
+    assertThat(counter.linesOfCode()).isEqualTo(2);
+    assertThat(counter.commentLines()).isEqualTo(5);
+  }
+
+  @Test
+  public void should_count_unterminated_block_comment() {
+    LineCounter counter = count(C_LIKE, "a; /* b\nc");
+
+    assertThat(counter.linesOfCode()).isEqualTo(1);
+    assertThat(counter.commentLines()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_count_nothing_in_empty_file() {
+    LineCounter counter = count(C_LIKE, "");
+
+    assertThat(counter.linesOfCode()).isEqualTo(0);
+    assertThat(counter.commentLines()).isEqualTo(0);
+  }
+
+  private static LineCounter count(CommentSyntax syntax, String source) {
+    try {
+      return new LineCounter(syntax).scan(ByteBuffer.wrap(source.getBytes("ISO-8859-1")));
+    } catch (java.io.UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class LongIntTableTest {
+
+  @Test
+  public void should_add_and_get_values() {
+    LongIntTable table = new LongIntTable(0);
+
+    assertThat(table.add(42L, 1)).isEqualTo(1);
+    assertThat(table.add(42L, 2)).isEqualTo(3);
+    assertThat(table.add(-1L, 1)).isEqualTo(1);
+    assertThat(table.add(0L, 5)).isEqualTo(5);
+
+    assertThat(table.get(42L)).isEqualTo(3);
+    assertThat(table.get(-1L)).isEqualTo(1);
+    assertThat(table.get(0L)).isEqualTo(5);
+    assertThat(table.get(43L)).isEqualTo(0);
+    assertThat(table.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void should_grow() {
+    LongIntTable table = new LongIntTable(4);
+    Random random = new Random(42L);
+    long[] keys = new long[10000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = random.nextLong();
+      table.add(keys[i], i);
+    }
+    // keys colliding on their low bits
+    for (int i = 1; i <= 100; i++) {
+      table.add((long) i << 32, i);
+    }
+
+    assertThat(table.size()).isEqualTo(10100);
+    for (int i = 0; i < keys.length; i++) {
+      assertThat(table.get(keys[i])).isEqualTo(i);
+    }
+    assertThat(table.get(100L << 32)).isEqualTo(100);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void fail_if_expected_size_exceeds_max_capacity() {
+    new LongIntTable(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void fail_if_growing_beyond_max_capacity() {
+    LongIntTable table = new LongIntTable(0, 32);
+    for (int i = 1; i <= 16; i++) {
+      table.add(i, 1);
+    }
+
+    try {
+      table.add(17L, 1);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).contains("32 slots");
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SourceBuffersTest {
+
+  private static final SourceBuffers.Visitor<String> TO_STRING = new SourceBuffers.Visitor<String>() {
+    public String visit(ByteBuffer source) {
+      byte[] bytes = new byte[source.remaining()];
+      source.get(bytes);
+      return (source instanceof MappedByteBuffer ? "mapped:" : "read:") + bytes.length;
+    }
+  };
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void should_read_small_files_and_map_large_files() throws Exception {
+    File small = temp.newFile("small.txt");
+    FileUtils.write(small, "foo");
+    File large = temp.newFile("large.txt");
+    FileUtils.writeByteArrayToFile(large, new byte[SourceBuffers.MAPPING_THRESHOLD]);
+
+    assertThat(SourceBuffers.read(small, TO_STRING)).isEqualTo("read:3");
+    assertThat(SourceBuffers.read(large, TO_STRING)).isEqualTo("mapped:" + SourceBuffers.MAPPING_THRESHOLD);
+    assertThat(SourceBuffers.read(temp.newFile("empty.txt"), TO_STRING)).isEqualTo("read:0");
+  }
+
+  @Test
+  public void should_ignore_missing_file() {
+    assertThat(SourceBuffers.read(new File(temp.getRoot(), "missing.txt"), TO_STRING)).isNull();
+  }
+
+  @Test
+  public void should_accept_ascii_compatible_charsets() {
+    assertThat(SourceBuffers.isCompatible(Charset.forName("UTF-8"))).isTrue();
+    assertThat(SourceBuffers.isCompatible(Charset.forName("ISO-8859-1"))).isTrue();
+    assertThat(SourceBuffers.isCompatible(Charset.forName("UTF-16"))).isFalse();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * SonarQube Common Rules
+ * Copyright (C) 2012 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.commonrules.internal.sources;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class WindowHashesTest {
+
+  @Test
+  public void should_ignore_blanks_and_insignificant_lines() {
+    long[] lines = WindowHashes.lineHashes(source("a = 1;\n\n  }\n\ta  =  1 ;\r\nb\r"));
+
+    assertThat(lines[0]).isEqualTo(3);
+    assertThat(lines[1]).isEqualTo(lines[2]);
+    assertThat(lines[3]).isNotEqualTo(lines[1]);
+  }
+
+  @Test
+  public void should_roll_hashes_over_windows() {
+    long[] windows = WindowHashes.of(source("a\nb\nc\na\nb\nc\nd"), 3);
+
+    assertThat(windows).hasSize(5);
+    assertThat(windows[0]).isEqualTo(windows[3]);
+    assertThat(windows[0]).isEqualTo(WindowHashes.of(source("a\n  b\nc"), 3)[0]);
+    assertThat(windows[1]).isNotEqualTo(windows[0]);
+    assertThat(windows[4]).isNotEqualTo(windows[1]);
+  }
+
+  @Test
+  public void should_hash_many_lines() {
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      source.append("line").append(i % 100).append('\n');
+    }
+    long[] windows = WindowHashes.of(source(source.toString()), 10);
+
+    assertThat(windows).hasSize(991);
+    assertThat(windows[990]).isEqualTo(windows[90]);
+  }
+
+  @Test
+  public void should_have_no_window_if_file_too_small() {
+    assertThat(WindowHashes.of(source("a\nb"), 3)).isEmpty();
+    assertThat(WindowHashes.of(source(""), 1)).isEmpty();
+  }
+
+  private static ByteBuffer source(String source) {
+    return ByteBuffer.wrap(source.getBytes());
+  }
+}